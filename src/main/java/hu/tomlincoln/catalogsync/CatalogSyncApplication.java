@@ -2,10 +2,12 @@ package hu.tomlincoln.catalogsync;
 
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.boot.context.properties.ConfigurationPropertiesScan;
 import org.springframework.data.jpa.repository.config.EnableJpaAuditing;
 import org.springframework.data.jpa.repository.config.EnableJpaRepositories;
 
 @SpringBootApplication
+@ConfigurationPropertiesScan
 @EnableJpaRepositories
 @EnableJpaAuditing
 public class CatalogSyncApplication {
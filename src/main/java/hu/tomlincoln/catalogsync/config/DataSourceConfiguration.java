@@ -0,0 +1,95 @@
+package hu.tomlincoln.catalogsync.config;
+
+import com.zaxxer.hikari.HikariConfig;
+import com.zaxxer.hikari.HikariDataSource;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.util.Map;
+
+/**
+ * SQLite allows one writer at a time, but in WAL mode readers neither block it nor wait for it. So every write goes
+ * through a single writer connection, and read-only transactions get connections of a separate, read-only pool, which
+ * keep serving reads while a sync holds the writer.
+ */
+@Configuration
+public class DataSourceConfiguration {
+
+    // sqlite-jdbc open flags of a read-only connection, SQLITE_OPEN_READONLY
+    private static final String READ_ONLY_OPEN_MODE = "1";
+
+    private final DataSourceProperties dataSourceProperties;
+    private final SqliteProperties sqliteProperties;
+
+    public DataSourceConfiguration(DataSourceProperties dataSourceProperties, SqliteProperties sqliteProperties) {
+        this.dataSourceProperties = dataSourceProperties;
+        this.sqliteProperties = sqliteProperties;
+    }
+
+    @Bean
+    @Primary
+    public DataSource dataSource() {
+        RoleRoutingDataSource routing = new RoleRoutingDataSource();
+        // The writer goes first, it creates the database and switches it to WAL mode, a read-only connection can not
+        routing.setTargetDataSources(Map.of(Role.WRITER, writerDataSource(), Role.READER, readerDataSource()));
+        routing.setDefaultTargetDataSource(writerDataSource());
+        routing.afterPropertiesSet();
+        // Only picks the connection at the first statement, once the transaction is known to be read-only or not
+        LazyConnectionDataSourceProxy lazy = new LazyConnectionDataSourceProxy();
+        lazy.setDefaultAutoCommit(true);
+        lazy.setDefaultTransactionIsolation(Connection.TRANSACTION_SERIALIZABLE);
+        lazy.setTargetDataSource(routing);
+        return lazy;
+    }
+
+    @Bean(autowireCandidate = false)
+    public HikariDataSource writerDataSource() {
+        HikariConfig config = config("catalogsync-writer", sqliteProperties.getWriter());
+        config.setMaximumPoolSize(1);
+        config.addDataSourceProperty("journal_mode", "WAL");
+        return new HikariDataSource(config);
+    }
+
+    @Bean(autowireCandidate = false)
+    public HikariDataSource readerDataSource() {
+        HikariConfig config = config("catalogsync-reader", sqliteProperties.getReader());
+        config.setMaximumPoolSize(sqliteProperties.getReaderPoolSize());
+        config.setReadOnly(true);
+        config.addDataSourceProperty("open_mode", READ_ONLY_OPEN_MODE);
+        return new HikariDataSource(config);
+    }
+
+    private HikariConfig config(String poolName, SqliteProperties.Pragmas pragmas) {
+        HikariConfig config = new HikariConfig();
+        config.setPoolName(poolName);
+        config.setJdbcUrl(dataSourceProperties.determineUrl());
+        config.setDriverClassName(dataSourceProperties.determineDriverClassName());
+        // Passed to sqlite-jdbc, which runs them as pragmas on every new connection
+        config.addDataSourceProperty("busy_timeout", String.valueOf(sqliteProperties.getBusyTimeout().toMillis()));
+        config.addDataSourceProperty("synchronous", pragmas.getSynchronous());
+        // A negative cache size is in KiB instead of pages
+        config.addDataSourceProperty("cache_size", String.valueOf(-pragmas.getCacheSize().toKilobytes()));
+        config.addDataSourceProperty("mmap_size", String.valueOf(pragmas.getMmapSize().toBytes()));
+        return config;
+    }
+
+    private enum Role {
+        WRITER,
+        READER
+    }
+
+    private static final class RoleRoutingDataSource extends AbstractRoutingDataSource {
+
+        @Override
+        protected Object determineCurrentLookupKey() {
+            return TransactionSynchronizationManager.isCurrentTransactionReadOnly() ? Role.READER : Role.WRITER;
+        }
+    }
+}
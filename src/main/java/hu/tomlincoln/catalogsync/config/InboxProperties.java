@@ -0,0 +1,32 @@
+package hu.tomlincoln.catalogsync.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.nio.file.Path;
+import java.time.Duration;
+
+@ConfigurationProperties(prefix = "catalogsync.inbox")
+public class InboxProperties {
+
+    // Directory watched for feed files, watching is off if not set
+    private Path directory;
+
+    // A file is synchronized once it was not written for this long
+    private Duration debounce = Duration.ofSeconds(5);
+
+    public Path getDirectory() {
+        return directory;
+    }
+
+    public void setDirectory(Path directory) {
+        this.directory = directory;
+    }
+
+    public Duration getDebounce() {
+        return debounce;
+    }
+
+    public void setDebounce(Duration debounce) {
+        this.debounce = debounce;
+    }
+}
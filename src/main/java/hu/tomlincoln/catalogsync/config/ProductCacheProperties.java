@@ -0,0 +1,31 @@
+package hu.tomlincoln.catalogsync.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+@ConfigurationProperties(prefix = "catalogsync.product-cache")
+public class ProductCacheProperties {
+
+    // Products kept by the by-id cache, the least valuable ones are evicted above this
+    private long maximumSize = 100_000;
+
+    // A cached product is reloaded after this, even if no sync touched it
+    private Duration expireAfterWrite = Duration.ofMinutes(10);
+
+    public long getMaximumSize() {
+        return maximumSize;
+    }
+
+    public void setMaximumSize(long maximumSize) {
+        this.maximumSize = maximumSize;
+    }
+
+    public Duration getExpireAfterWrite() {
+        return expireAfterWrite;
+    }
+
+    public void setExpireAfterWrite(Duration expireAfterWrite) {
+        this.expireAfterWrite = expireAfterWrite;
+    }
+}
@@ -0,0 +1,90 @@
+package hu.tomlincoln.catalogsync.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.util.unit.DataSize;
+
+import java.time.Duration;
+
+@ConfigurationProperties(prefix = "catalogsync.sqlite")
+public class SqliteProperties {
+
+    // Read-only connections serving read-only transactions, the writer always has a single connection
+    private int readerPoolSize = 4;
+
+    // How long a statement waits for a lock held by another connection before failing
+    private Duration busyTimeout = Duration.ofSeconds(5);
+
+    // Pragmas of the writer connection, which every write goes through
+    private Pragmas writer = new Pragmas();
+
+    // Pragmas of the reader connections
+    private Pragmas reader = new Pragmas();
+
+    public int getReaderPoolSize() {
+        return readerPoolSize;
+    }
+
+    public void setReaderPoolSize(int readerPoolSize) {
+        this.readerPoolSize = readerPoolSize;
+    }
+
+    public Duration getBusyTimeout() {
+        return busyTimeout;
+    }
+
+    public void setBusyTimeout(Duration busyTimeout) {
+        this.busyTimeout = busyTimeout;
+    }
+
+    public Pragmas getWriter() {
+        return writer;
+    }
+
+    public void setWriter(Pragmas writer) {
+        this.writer = writer;
+    }
+
+    public Pragmas getReader() {
+        return reader;
+    }
+
+    public void setReader(Pragmas reader) {
+        this.reader = reader;
+    }
+
+    public static class Pragmas {
+
+        // NORMAL is safe in WAL mode, a power loss may only drop the last commits but never corrupts the database
+        private String synchronous = "NORMAL";
+
+        // Page cache of a connection
+        private DataSize cacheSize = DataSize.ofMegabytes(16);
+
+        // Part of the database file read through memory mapping instead of read calls, 0 turns it off
+        private DataSize mmapSize = DataSize.ofMegabytes(256);
+
+        public String getSynchronous() {
+            return synchronous;
+        }
+
+        public void setSynchronous(String synchronous) {
+            this.synchronous = synchronous;
+        }
+
+        public DataSize getCacheSize() {
+            return cacheSize;
+        }
+
+        public void setCacheSize(DataSize cacheSize) {
+            this.cacheSize = cacheSize;
+        }
+
+        public DataSize getMmapSize() {
+            return mmapSize;
+        }
+
+        public void setMmapSize(DataSize mmapSize) {
+            this.mmapSize = mmapSize;
+        }
+    }
+}
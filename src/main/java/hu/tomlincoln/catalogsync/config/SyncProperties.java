@@ -0,0 +1,163 @@
+package hu.tomlincoln.catalogsync.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.util.unit.DataSize;
+
+import java.nio.file.Path;
+import java.nio.file.Paths;
+
+@ConfigurationProperties(prefix = "catalogsync.sync")
+public class SyncProperties {
+
+    // Number of validated rows handed over to the diff / write stage at once, each chunk is committed in one
+    // transaction together with the checkpoint a failed sync continues from
+    private int chunkSize = 1000;
+
+    // Threads tokenizing and validating the feed, defaults to the number of cores
+    private int parallelism = Runtime.getRuntime().availableProcessors();
+
+    // Part of the feed mapped and validated at once, this bounds the rows held in memory
+    private DataSize windowSize = DataSize.ofMegabytes(32);
+
+    // A window is split between the validating threads until a piece is smaller than this
+    private DataSize segmentSize = DataSize.ofMegabytes(1);
+
+    // Statements sent to the database in one JDBC batch by the bulk writer
+    private int writeBatchSize = 500;
+
+    // Rows written by the bulk writer in one transaction, unless it joins the transaction of a chunk
+    private int commitInterval = 5000;
+
+    // Sync jobs waiting behind the running one, further submissions are rejected
+    private int jobQueueCapacity = 16;
+
+    // Finished sync jobs kept for status polling
+    private int retainedJobs = 1000;
+
+    // How the feed is compared with the stored products
+    private DiffMode diffMode = DiffMode.STAGED;
+
+    // Rows sorted in memory by the merge diff before a run is spilled to disk
+    private DataSize sortBufferSize = DataSize.ofMegabytes(64);
+
+    // Where the merge diff spills its sorted runs, defaults to the temporary directory
+    private Path spillDirectory = Paths.get(System.getProperty("java.io.tmpdir"));
+
+    // Memory mapped file keeping the row hash index across restarts, the index stays on the heap if not set
+    private Path rowHashIndexFile;
+
+    // Published catalog versions that stay readable, the history only older versions could see is dropped
+    private int retainedVersions = 5;
+
+    public int getChunkSize() {
+        return chunkSize;
+    }
+
+    public void setChunkSize(int chunkSize) {
+        this.chunkSize = chunkSize;
+    }
+
+    public int getParallelism() {
+        return parallelism;
+    }
+
+    public void setParallelism(int parallelism) {
+        this.parallelism = parallelism;
+    }
+
+    public DataSize getWindowSize() {
+        return windowSize;
+    }
+
+    public void setWindowSize(DataSize windowSize) {
+        this.windowSize = windowSize;
+    }
+
+    public DataSize getSegmentSize() {
+        return segmentSize;
+    }
+
+    public void setSegmentSize(DataSize segmentSize) {
+        this.segmentSize = segmentSize;
+    }
+
+    public int getWriteBatchSize() {
+        return writeBatchSize;
+    }
+
+    public void setWriteBatchSize(int writeBatchSize) {
+        this.writeBatchSize = writeBatchSize;
+    }
+
+    public int getCommitInterval() {
+        return commitInterval;
+    }
+
+    public void setCommitInterval(int commitInterval) {
+        this.commitInterval = commitInterval;
+    }
+
+    public int getJobQueueCapacity() {
+        return jobQueueCapacity;
+    }
+
+    public void setJobQueueCapacity(int jobQueueCapacity) {
+        this.jobQueueCapacity = jobQueueCapacity;
+    }
+
+    public int getRetainedJobs() {
+        return retainedJobs;
+    }
+
+    public void setRetainedJobs(int retainedJobs) {
+        this.retainedJobs = retainedJobs;
+    }
+
+    public DiffMode getDiffMode() {
+        return diffMode;
+    }
+
+    public void setDiffMode(DiffMode diffMode) {
+        this.diffMode = diffMode;
+    }
+
+    public DataSize getSortBufferSize() {
+        return sortBufferSize;
+    }
+
+    public void setSortBufferSize(DataSize sortBufferSize) {
+        this.sortBufferSize = sortBufferSize;
+    }
+
+    public Path getSpillDirectory() {
+        return spillDirectory;
+    }
+
+    public void setSpillDirectory(Path spillDirectory) {
+        this.spillDirectory = spillDirectory;
+    }
+
+    public Path getRowHashIndexFile() {
+        return rowHashIndexFile;
+    }
+
+    public void setRowHashIndexFile(Path rowHashIndexFile) {
+        this.rowHashIndexFile = rowHashIndexFile;
+    }
+
+    public int getRetainedVersions() {
+        return retainedVersions;
+    }
+
+    public void setRetainedVersions(int retainedVersions) {
+        this.retainedVersions = retainedVersions;
+    }
+
+    public enum DiffMode {
+        // Feed ids are staged in a table and every chunk is joined with the products, memory is bound by the chunk
+        STAGED,
+        // The feed is sorted by id on disk and merged with the products read in id order, so nothing the size of the
+        // feed or the catalog is kept, not even the ids to delete
+        MERGE
+    }
+}
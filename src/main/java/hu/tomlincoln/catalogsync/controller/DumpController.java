@@ -1,25 +1,34 @@
 package hu.tomlincoln.catalogsync.controller;
 
-import hu.tomlincoln.catalogsync.domain.Product;
+import hu.tomlincoln.catalogsync.service.CatalogVersionService;
 import hu.tomlincoln.catalogsync.service.DumpService;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
-
-import java.util.List;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 @RestController
 public class DumpController {
 
     private final DumpService dumpService;
+    private final CatalogVersionService catalogVersionService;
 
-    public DumpController(DumpService dumpService) {
+    public DumpController(DumpService dumpService, CatalogVersionService catalogVersionService) {
         this.dumpService = dumpService;
+        this.catalogVersionService = catalogVersionService;
     }
 
+    /** Without a version the published catalog version is dumped, as it was when the request came in. */
     @GetMapping("/dump")
-    public ResponseEntity<List<Product>> dump() {
-        return ResponseEntity.ok().body(dumpService.dumpAll());
+    public ResponseEntity<StreamingResponseBody> dump(@RequestParam(required = false) final Long version) {
+        if (version != null && !catalogVersionService.isRetained(version)) {
+            return ResponseEntity.badRequest().build();
+        }
+        long pinned = version == null ? catalogVersionService.getPublished() : version;
+        return ResponseEntity.ok().contentType(MediaType.APPLICATION_JSON)
+                .body(outputStream -> dumpService.dumpAll(outputStream, pinned));
     }
 
 }
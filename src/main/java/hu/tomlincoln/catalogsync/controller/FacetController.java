@@ -0,0 +1,58 @@
+package hu.tomlincoln.catalogsync.controller;
+
+import hu.tomlincoln.catalogsync.domain.AgeGroup;
+import hu.tomlincoln.catalogsync.domain.ProductAvailability;
+import hu.tomlincoln.catalogsync.domain.ProductCondition;
+import hu.tomlincoln.catalogsync.domain.ProductFacet;
+import hu.tomlincoln.catalogsync.dto.FacetResultDTO;
+import hu.tomlincoln.catalogsync.service.FacetIndexService;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.Collection;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+@RestController
+public class FacetController {
+
+    private static final int MAX_LIMIT = 1000;
+
+    private final FacetIndexService facetIndexService;
+
+    public FacetController(FacetIndexService facetIndexService) {
+        this.facetIndexService = facetIndexService;
+    }
+
+    /**
+     * Repeating a parameter matches any of its values, different parameters must all match, for example
+     * {@code /facets?availability=IN_STOCK&googleProductCategory=543542&brand=Vinton&brand=Other}.
+     */
+    @GetMapping("/facets")
+    public ResponseEntity<FacetResultDTO> query(@RequestParam(required = false) final List<String> brand,
+                                                @RequestParam(required = false) final List<String> googleProductCategory,
+                                                @RequestParam(required = false) final List<ProductAvailability> availability,
+                                                @RequestParam(required = false) final List<ProductCondition> condition,
+                                                @RequestParam(required = false) final List<AgeGroup> ageGroup,
+                                                @RequestParam(defaultValue = "100") final int limit) {
+        if (limit < 0 || limit > MAX_LIMIT) {
+            return ResponseEntity.badRequest().build();
+        }
+        Map<ProductFacet, Collection<String>> filters = new EnumMap<>(ProductFacet.class);
+        filters.put(ProductFacet.BRAND, brand);
+        filters.put(ProductFacet.GOOGLE_PRODUCT_CATEGORY, googleProductCategory);
+        filters.put(ProductFacet.AVAILABILITY, names(availability));
+        filters.put(ProductFacet.CONDITION, names(condition));
+        filters.put(ProductFacet.AGE_GROUP, names(ageGroup));
+        return ResponseEntity.ok().body(facetIndexService.query(filters, limit));
+    }
+
+    private static Collection<String> names(List<? extends Enum<?>> values) {
+        return values == null ? null : values.stream().map(Enum::name).collect(Collectors.toList());
+    }
+
+}
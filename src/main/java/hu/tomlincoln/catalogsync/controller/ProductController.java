@@ -0,0 +1,70 @@
+package hu.tomlincoln.catalogsync.controller;
+
+import hu.tomlincoln.catalogsync.domain.AgeGroup;
+import hu.tomlincoln.catalogsync.domain.Product;
+import hu.tomlincoln.catalogsync.domain.ProductAvailability;
+import hu.tomlincoln.catalogsync.dto.CacheStatsDTO;
+import hu.tomlincoln.catalogsync.dto.ProductFilterDTO;
+import hu.tomlincoln.catalogsync.dto.ProductPageDTO;
+import hu.tomlincoln.catalogsync.service.CatalogVersionService;
+import hu.tomlincoln.catalogsync.service.ProductListingService;
+import hu.tomlincoln.catalogsync.service.ProductLookupService;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+@RestController
+public class ProductController {
+
+    private final ProductListingService productListingService;
+    private final ProductLookupService productLookupService;
+    private final CatalogVersionService catalogVersionService;
+
+    public ProductController(ProductListingService productListingService, ProductLookupService productLookupService,
+                             CatalogVersionService catalogVersionService) {
+        this.productListingService = productListingService;
+        this.productLookupService = productLookupService;
+        this.catalogVersionService = catalogVersionService;
+    }
+
+    /** Without a version the product is read from the published catalog version. */
+    @GetMapping("/products/{id}")
+    public ResponseEntity<Product> get(@PathVariable final String id,
+                                       @RequestParam(required = false) final Long version) {
+        if (version != null && !catalogVersionService.isRetained(version)) {
+            return ResponseEntity.badRequest().build();
+        }
+        return ResponseEntity.of(version == null ? productLookupService.findById(id)
+                : productLookupService.findById(id, version));
+    }
+
+    @GetMapping("/products/cache/stats")
+    public ResponseEntity<CacheStatsDTO> cacheStats() {
+        return ResponseEntity.ok().body(productLookupService.getStats());
+    }
+
+    @GetMapping("/products")
+    public ResponseEntity<ProductPageDTO> list(@RequestParam(required = false) final String after,
+                                              @RequestParam(defaultValue = "100") final int limit,
+                                              @RequestParam(required = false) final ProductAvailability availability,
+                                              @RequestParam(required = false) final String brand,
+                                              @RequestParam(required = false) final AgeGroup ageGroup,
+                                              @RequestParam(required = false) final String googleProductCategory,
+                                              @RequestParam(required = false) final Long version) {
+        if (limit < 1 || limit > ProductListingService.MAX_PAGE_SIZE
+                || (version != null && !catalogVersionService.isRetained(version))) {
+            return ResponseEntity.badRequest().build();
+        }
+        ProductFilterDTO filter = new ProductFilterDTO.Builder()
+                .withAvailability(availability)
+                .withBrand(brand)
+                .withAgeGroup(ageGroup)
+                .withGoogleProductCategory(googleProductCategory)
+                .build();
+        return ResponseEntity.ok().body(version == null ? productListingService.list(filter, after, limit)
+                : productListingService.list(filter, after, limit, version));
+    }
+
+}
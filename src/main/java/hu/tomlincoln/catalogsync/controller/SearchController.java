@@ -0,0 +1,32 @@
+package hu.tomlincoln.catalogsync.controller;
+
+import hu.tomlincoln.catalogsync.dto.SearchHitDTO;
+import hu.tomlincoln.catalogsync.service.SearchService;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.List;
+
+@RestController
+public class SearchController {
+
+    private static final int MAX_LIMIT = 100;
+
+    private final SearchService searchService;
+
+    public SearchController(SearchService searchService) {
+        this.searchService = searchService;
+    }
+
+    @GetMapping("/search")
+    public ResponseEntity<List<SearchHitDTO>> search(@RequestParam final String q,
+                                                     @RequestParam(defaultValue = "20") final int limit) {
+        if (limit < 1 || limit > MAX_LIMIT) {
+            return ResponseEntity.badRequest().build();
+        }
+        return ResponseEntity.ok().body(searchService.search(q, limit));
+    }
+
+}
@@ -1,14 +1,26 @@
 package hu.tomlincoln.catalogsync.controller;
 
 import hu.tomlincoln.catalogsync.dto.ReportDTO;
+import hu.tomlincoln.catalogsync.dto.SyncJobDTO;
+import hu.tomlincoln.catalogsync.feed.FeedCompression;
+import hu.tomlincoln.catalogsync.service.SyncJobService;
 import hu.tomlincoln.catalogsync.service.SynchronizerService;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RestController;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URI;
+import java.util.List;
+import java.util.concurrent.RejectedExecutionException;
 import java.util.regex.Pattern;
 
 @RestController
@@ -17,23 +29,62 @@ public class SyncController {
     private static final Logger LOG = LoggerFactory.getLogger(SyncController.class);
     private static final Pattern FILENAME_PATTERN = Pattern.compile("^[1-3]$");
 
+    private final SyncJobService syncJobService;
     private final SynchronizerService synchronizerService;
 
-    public SyncController(SynchronizerService synchronizerService) {
+    public SyncController(SyncJobService syncJobService, SynchronizerService synchronizerService) {
+        this.syncJobService = syncJobService;
         this.synchronizerService = synchronizerService;
     }
 
     @GetMapping("/sync/{fileId}")
-    public ResponseEntity<ReportDTO> sync(@PathVariable final String fileId) {
+    public ResponseEntity<SyncJobDTO> sync(@PathVariable final String fileId) {
         if (!FILENAME_PATTERN.matcher(fileId).matches()) {
             return ResponseEntity.badRequest().build();
         }
-        long startTime = System.currentTimeMillis();
-        LOG.debug("Starting synchronizing...");
-        ReportDTO reportDTO = synchronizerService.synchronize("file" + fileId + ".txt");
-        long endTime = System.currentTimeMillis();
-        LOG.debug("Finished synchronizing took " + (endTime - startTime) + "ms");
-        return ResponseEntity.ok().body(reportDTO);
+        try {
+            SyncJobDTO job = syncJobService.submit("file" + fileId + ".txt");
+            return ResponseEntity.accepted().location(URI.create("/sync/jobs/" + job.getId())).body(job);
+        } catch (RejectedExecutionException e) {
+            LOG.warn("Sync job queue is full, rejected synchronizing file " + fileId);
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).build();
+        }
+    }
+
+    /**
+     * Synchronizes the feed sent as the request body while it is being received, gzip and deflate encoding are
+     * supported. Refused while another sync runs, a slow sender would hold up the queued jobs even longer.
+     */
+    @PostMapping("/sync")
+    public ResponseEntity<ReportDTO> upload(final InputStream body,
+            @RequestHeader(value = HttpHeaders.CONTENT_ENCODING, required = false) final String contentEncoding)
+            throws IOException {
+        FeedCompression compression;
+        if (contentEncoding == null || contentEncoding.equalsIgnoreCase("identity")) {
+            compression = FeedCompression.NONE;
+        } else if (contentEncoding.equalsIgnoreCase("gzip")) {
+            compression = FeedCompression.GZIP;
+        } else if (contentEncoding.equalsIgnoreCase("deflate")) {
+            compression = FeedCompression.ZLIB;
+        } else {
+            return ResponseEntity.status(HttpStatus.UNSUPPORTED_MEDIA_TYPE).build();
+        }
+        try {
+            return ResponseEntity.ok().body(synchronizerService.synchronize(compression.decompress(body)));
+        } catch (RejectedExecutionException e) {
+            LOG.warn("Another sync is running, rejected synchronizing an uploaded feed");
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).build();
+        }
+    }
+
+    @GetMapping("/sync/jobs")
+    public ResponseEntity<List<SyncJobDTO>> latestJobs() {
+        return ResponseEntity.ok().body(syncJobService.getLatestJobs());
+    }
+
+    @GetMapping("/sync/jobs/{jobId}")
+    public ResponseEntity<SyncJobDTO> job(@PathVariable final String jobId) {
+        return ResponseEntity.of(syncJobService.getJob(jobId));
     }
 
 }
@@ -0,0 +1,24 @@
+package hu.tomlincoln.catalogsync.controller;
+
+import hu.tomlincoln.catalogsync.dto.CatalogVersionDTO;
+import hu.tomlincoln.catalogsync.service.CatalogVersionService;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+@RestController
+public class VersionController {
+
+    private final CatalogVersionService catalogVersionService;
+
+    public VersionController(CatalogVersionService catalogVersionService) {
+        this.catalogVersionService = catalogVersionService;
+    }
+
+    /** The catalog versions that can be passed as the version parameter of /products and /dump. */
+    @GetMapping("/versions")
+    public ResponseEntity<CatalogVersionDTO> versions() {
+        return ResponseEntity.ok().body(catalogVersionService.getVersions());
+    }
+
+}
@@ -0,0 +1,51 @@
+package hu.tomlincoln.catalogsync.domain;
+
+import javax.persistence.Column;
+import javax.persistence.Entity;
+import javax.persistence.Id;
+
+/**
+ * A single row living and dying with the schema of the products. Its token tells files kept beside the database,
+ * like the row hash index, whether they still describe this catalog. It also points to the catalog version readers
+ * currently see.
+ */
+@Entity
+public class CatalogState {
+
+    public static final int ID = 1;
+
+    @Id
+    private int id = ID;
+
+    @Column(nullable = false)
+    private long token;
+
+    //Zero until the first synchronization is published, that version is the empty catalog
+    @Column(nullable = false)
+    private long publishedVersion;
+
+    public int getId() {
+        return id;
+    }
+
+    public void setId(int id) {
+        this.id = id;
+    }
+
+    public long getToken() {
+        return token;
+    }
+
+    public void setToken(long token) {
+        this.token = token;
+    }
+
+    public long getPublishedVersion() {
+        return publishedVersion;
+    }
+
+    public void setPublishedVersion(long publishedVersion) {
+        this.publishedVersion = publishedVersion;
+    }
+
+}
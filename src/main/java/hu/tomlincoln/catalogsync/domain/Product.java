@@ -1,5 +1,6 @@
 package hu.tomlincoln.catalogsync.domain;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import org.springframework.data.annotation.CreatedDate;
 import org.springframework.data.jpa.domain.support.AuditingEntityListener;
 
@@ -12,6 +13,8 @@ import javax.persistence.EntityListeners;
 import javax.persistence.EnumType;
 import javax.persistence.Enumerated;
 import javax.persistence.Id;
+import javax.persistence.Index;
+import javax.persistence.Table;
 import java.math.BigDecimal;
 import java.time.LocalDateTime;
 import java.util.Arrays;
@@ -21,6 +24,15 @@ import java.util.Optional;
 
 @Entity
 @EntityListeners(AuditingEntityListener.class)
+//The listing filters on one of these columns and pages by id, so every index ends with the id. Publishing a version
+//finds the products written in it by their version.
+@Table(indexes = {
+        @Index(name = "product_availability_id", columnList = "availability, id"),
+        @Index(name = "product_brand_id", columnList = "brand, id"),
+        @Index(name = "product_age_group_id", columnList = "ageGroup, id"),
+        @Index(name = "product_google_product_category_id", columnList = "googleProductCategory, id"),
+        @Index(name = "product_version_from", columnList = "versionFrom")
+})
 public class Product {
 
     @Id
@@ -78,6 +90,21 @@ public class Product {
     @Column(updatable = false)
     private LocalDateTime createdAt;
 
+    //Hash of the normalized fields, so the sync can find changed products without loading them
+    @JsonIgnore
+    @Column(nullable = false)
+    private long contentHash;
+
+    //Hash of the raw feed line the product was stored from, unchanged lines are skipped without parsing them
+    @JsonIgnore
+    @Column(nullable = false)
+    private long rowHash;
+
+    //The catalog version this content was written in, replaced or deleted content is kept in the product history
+    @JsonIgnore
+    @Column(nullable = false)
+    private long versionFrom;
+
     public String getId() {
         return id;
     }
@@ -178,39 +205,90 @@ public class Product {
         return createdAt;
     }
 
+    public long getContentHash() {
+        return contentHash;
+    }
+
+    public long getRowHash() {
+        return rowHash;
+    }
+
+    public void setRowHash(long rowHash) {
+        this.rowHash = rowHash;
+    }
+
+    public long getVersionFrom() {
+        return versionFrom;
+    }
+
     public static Product fromStringArray(String[] array) {
         return fromStringArray(array, null);
     }
 
     public static Product fromStringArray(String[] array, Product product) {
+        // The array comes from the feed tokenizer, so its quotes are already stripped
         Product newOrExistingProduct = Optional.ofNullable(product).orElseGet(Product::new);
-        String[] cleanArray = Product.cleanProductArrayFromParenthesis(array);
-        newOrExistingProduct.setId(cleanArray[0]);
-        newOrExistingProduct.setTitle(cleanArray[1]);
-        newOrExistingProduct.setDescription(cleanArray[2]);
-        newOrExistingProduct.setAvailability(ProductAvailability.valueOf(cleanArray[3].toUpperCase().replace(" ", "_")));
-        newOrExistingProduct.setCondition(ProductCondition.valueOf(cleanArray[4].toUpperCase().replace(" ", "_")));
+        newOrExistingProduct.setId(array[0]);
+        newOrExistingProduct.setTitle(array[1]);
+        newOrExistingProduct.setDescription(array[2]);
+        newOrExistingProduct.setAvailability(ProductAvailability.valueOf(array[3].toUpperCase().replace(" ", "_")));
+        // Empty condition defaults to NEW, like the error checker treats it
+        newOrExistingProduct.setCondition(array[4].isEmpty() ? ProductCondition.NEW
+                : ProductCondition.valueOf(array[4].toUpperCase().replace(" ", "_")));
         Price currentPrice = Optional.ofNullable(newOrExistingProduct.getPrice()).orElseGet(Price::new);
-        currentPrice.setValue(new BigDecimal(cleanArray[5].split(" ")[0]));
-        currentPrice.setCurrency(Currency.getInstance(cleanArray[5].split(" ")[1]));
+        currentPrice.setValue(new BigDecimal(array[5].split(" ")[0]));
+        currentPrice.setCurrency(Currency.getInstance(array[5].split(" ")[1]));
         newOrExistingProduct.setPrice(currentPrice);
         Price currentSalePrice = newOrExistingProduct.getPrice();
-        currentSalePrice.setValue(new BigDecimal(cleanArray[5].split(" ")[0]));
-        currentSalePrice.setCurrency(Currency.getInstance(cleanArray[5].split(" ")[1]));
+        currentSalePrice.setValue(new BigDecimal(array[5].split(" ")[0]));
+        currentSalePrice.setCurrency(Currency.getInstance(array[5].split(" ")[1]));
         newOrExistingProduct.setSalePrice(currentSalePrice);
-        newOrExistingProduct.setLink(cleanArray[7]);
-        newOrExistingProduct.setBrand(cleanArray[8]);
-        newOrExistingProduct.setImageLink(cleanArray[9]);
+        newOrExistingProduct.setLink(array[7]);
+        newOrExistingProduct.setBrand(array[8]);
+        newOrExistingProduct.setImageLink(array[9]);
         try {
-            newOrExistingProduct.setAgeGroup(AgeGroup.valueOf(Optional.ofNullable(cleanArray[10])
+            newOrExistingProduct.setAgeGroup(AgeGroup.valueOf(Optional.ofNullable(array[10])
                     .orElseGet(() -> String.valueOf(AgeGroup.NOT_SPECIFIED)).toUpperCase().replace(" ", "_")));
         } catch (IllegalArgumentException e) {
             newOrExistingProduct.setAgeGroup(AgeGroup.NOT_SPECIFIED);
         }
-        newOrExistingProduct.setGoogleProductCategory(cleanArray[11]);
+        newOrExistingProduct.setGoogleProductCategory(array[11]);
+        newOrExistingProduct.contentHash = newOrExistingProduct.computeContentHash();
         return newOrExistingProduct;
     }
 
+    /**
+     * 64-bit FNV-1a over the fields compared by {@link #equals(Object)}, finished with the MurmurHash3 mixer.
+     * Every field is prefixed with its length, so shifting characters between neighbouring fields changes the hash.
+     */
+    private long computeContentHash() {
+        long hash = 0xcbf29ce484222325L;
+        hash = mix(hash, id);
+        hash = mix(hash, title);
+        hash = mix(hash, description);
+        hash = mix(hash, availability == null ? null : availability.name());
+        hash = mix(hash, condition == null ? null : condition.name());
+        hash = mix(hash, price == null ? null : price.toString());
+        hash = mix(hash, salePrice == null ? null : salePrice.toString());
+        hash = mix(hash, brand);
+        hash = mix(hash, link);
+        hash = mix(hash, imageLink);
+        hash = mix(hash, ageGroup == null ? null : ageGroup.name());
+        hash = mix(hash, googleProductCategory);
+        hash = (hash ^ (hash >>> 33)) * 0xff51afd7ed558ccdL;
+        hash = (hash ^ (hash >>> 33)) * 0xc4ceb9fe1a85ec53L;
+        return hash ^ (hash >>> 33);
+    }
+
+    private static long mix(long hash, String value) {
+        int length = value == null ? -1 : value.length();
+        hash = (hash ^ length) * 0x100000001b3L;
+        for (int i = 0; i < length; i++) {
+            hash = (hash ^ value.charAt(i)) * 0x100000001b3L;
+        }
+        return hash;
+    }
+
     public static String[] cleanProductArrayFromParenthesis(String[] product) {
         return Arrays.stream(product)
                 .map(string -> Objects.requireNonNullElse(string, "")).map(s -> {
@@ -0,0 +1,35 @@
+package hu.tomlincoln.catalogsync.domain;
+
+import java.util.function.Function;
+
+public enum ProductFacet {
+
+    BRAND("brand", "brand", Product::getBrand),
+    GOOGLE_PRODUCT_CATEGORY("googleProductCategory", "google_product_category", Product::getGoogleProductCategory),
+    AVAILABILITY("availability", "availability", p -> p.getAvailability() == null ? null : p.getAvailability().name()),
+    CONDITION("condition", "condition", p -> p.getCondition() == null ? null : p.getCondition().name()),
+    AGE_GROUP("ageGroup", "age_group", p -> p.getAgeGroup() == null ? null : p.getAgeGroup().name());
+
+    private final String fieldName;
+    private final String columnName;
+    private final Function<Product, String> accessor;
+
+    ProductFacet(String fieldName, String columnName, Function<Product, String> accessor) {
+        this.fieldName = fieldName;
+        this.columnName = columnName;
+        this.accessor = accessor;
+    }
+
+    public String getFieldName() {
+        return fieldName;
+    }
+
+    public String getColumnName() {
+        return columnName;
+    }
+
+    public String valueOf(Product product) {
+        return accessor.apply(product);
+    }
+
+}
@@ -0,0 +1,174 @@
+package hu.tomlincoln.catalogsync.domain;
+
+import javax.persistence.Column;
+import javax.persistence.Entity;
+import javax.persistence.EnumType;
+import javax.persistence.Enumerated;
+import javax.persistence.Id;
+
+/**
+ * How far the synchronization of a feed file got, committed together with every chunk it wrote. Synchronizing the
+ * same, unchanged file again continues from here instead of starting over. There is at most one, the staged ids it
+ * relies on belong to a single feed.
+ */
+@Entity
+public class SyncCheckpoint {
+
+    public static final int ID = 1;
+
+    @Id
+    private int id = ID;
+
+    @Column(length = 4096, nullable = false)
+    private String source;
+
+    private long size;
+
+    private long modifiedAt;
+
+    //Unknown until the file is hashed, a checkpoint without it is never continued
+    private Long contentHash;
+
+    @Enumerated(EnumType.STRING)
+    @Column(length = 15, nullable = false)
+    private Phase phase = Phase.READ;
+
+    //Offset of the window the written rows are counted from, the window is validated again on resume
+    private long position;
+
+    //Valid rows from the position on that are written already
+    private long writtenRows;
+
+    //Number of the next chunk to stage
+    private int chunk;
+
+    private long added;
+
+    private long updated;
+
+    private long deleted;
+
+    //Invalid rows before the position
+    private long skipped;
+
+    public SyncCheckpoint() {
+    }
+
+    public SyncCheckpoint(String source, long size, long modifiedAt, Long contentHash) {
+        this.source = source;
+        this.size = size;
+        this.modifiedAt = modifiedAt;
+        this.contentHash = contentHash;
+    }
+
+    public int getId() {
+        return id;
+    }
+
+    public void setId(int id) {
+        this.id = id;
+    }
+
+    public String getSource() {
+        return source;
+    }
+
+    public void setSource(String source) {
+        this.source = source;
+    }
+
+    public long getSize() {
+        return size;
+    }
+
+    public void setSize(long size) {
+        this.size = size;
+    }
+
+    public long getModifiedAt() {
+        return modifiedAt;
+    }
+
+    public void setModifiedAt(long modifiedAt) {
+        this.modifiedAt = modifiedAt;
+    }
+
+    public Long getContentHash() {
+        return contentHash;
+    }
+
+    public void setContentHash(Long contentHash) {
+        this.contentHash = contentHash;
+    }
+
+    public Phase getPhase() {
+        return phase;
+    }
+
+    public void setPhase(Phase phase) {
+        this.phase = phase;
+    }
+
+    public long getPosition() {
+        return position;
+    }
+
+    public void setPosition(long position) {
+        this.position = position;
+    }
+
+    public long getWrittenRows() {
+        return writtenRows;
+    }
+
+    public void setWrittenRows(long writtenRows) {
+        this.writtenRows = writtenRows;
+    }
+
+    public int getChunk() {
+        return chunk;
+    }
+
+    public void setChunk(int chunk) {
+        this.chunk = chunk;
+    }
+
+    public long getAdded() {
+        return added;
+    }
+
+    public void setAdded(long added) {
+        this.added = added;
+    }
+
+    public long getUpdated() {
+        return updated;
+    }
+
+    public void setUpdated(long updated) {
+        this.updated = updated;
+    }
+
+    public long getDeleted() {
+        return deleted;
+    }
+
+    public void setDeleted(long deleted) {
+        this.deleted = deleted;
+    }
+
+    public long getSkipped() {
+        return skipped;
+    }
+
+    public void setSkipped(long skipped) {
+        this.skipped = skipped;
+    }
+
+    public enum Phase {
+        // Chunks of the feed are being written
+        READ,
+        // Every row is written, the products missing from the feed are being deleted
+        DELETE
+    }
+}
@@ -0,0 +1,76 @@
+package hu.tomlincoln.catalogsync.dto;
+
+public class CacheStatsDTO {
+
+    private final long size;
+    private final long hitCount;
+    private final long missCount;
+    private final double hitRate;
+    private final long evictionCount;
+
+    private CacheStatsDTO(Builder builder) {
+        this.size = builder.size;
+        this.hitCount = builder.hitCount;
+        this.missCount = builder.missCount;
+        this.hitRate = builder.hitRate;
+        this.evictionCount = builder.evictionCount;
+    }
+
+    public long getSize() {
+        return size;
+    }
+
+    public long getHitCount() {
+        return hitCount;
+    }
+
+    public long getMissCount() {
+        return missCount;
+    }
+
+    public double getHitRate() {
+        return hitRate;
+    }
+
+    public long getEvictionCount() {
+        return evictionCount;
+    }
+
+    public static class Builder {
+
+        private long size;
+        private long hitCount;
+        private long missCount;
+        private double hitRate;
+        private long evictionCount;
+
+        public Builder withSize(long size) {
+            this.size = size;
+            return this;
+        }
+
+        public Builder withHitCount(long hitCount) {
+            this.hitCount = hitCount;
+            return this;
+        }
+
+        public Builder withMissCount(long missCount) {
+            this.missCount = missCount;
+            return this;
+        }
+
+        public Builder withHitRate(double hitRate) {
+            this.hitRate = hitRate;
+            return this;
+        }
+
+        public Builder withEvictionCount(long evictionCount) {
+            this.evictionCount = evictionCount;
+            return this;
+        }
+
+        public CacheStatsDTO build() {
+            return new CacheStatsDTO(this);
+        }
+    }
+}
@@ -0,0 +1,42 @@
+package hu.tomlincoln.catalogsync.dto;
+
+public class CatalogVersionDTO {
+
+    private final long published;
+    private final long oldest;
+
+    private CatalogVersionDTO(Builder builder) {
+        this.published = builder.published;
+        this.oldest = builder.oldest;
+    }
+
+    /** The version read when no version is asked for. */
+    public long getPublished() {
+        return published;
+    }
+
+    /** The oldest version that can still be read, every version up to the published one can. */
+    public long getOldest() {
+        return oldest;
+    }
+
+    public static class Builder {
+
+        private long published;
+        private long oldest;
+
+        public Builder withPublished(long published) {
+            this.published = published;
+            return this;
+        }
+
+        public Builder withOldest(long oldest) {
+            this.oldest = oldest;
+            return this;
+        }
+
+        public CatalogVersionDTO build() {
+            return new CatalogVersionDTO(this);
+        }
+    }
+}
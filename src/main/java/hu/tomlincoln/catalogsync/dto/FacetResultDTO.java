@@ -0,0 +1,57 @@
+package hu.tomlincoln.catalogsync.dto;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+public class FacetResultDTO {
+
+    private final long total;
+    private final List<String> ids;
+    private final Map<String, Map<String, Integer>> counts;
+
+    private FacetResultDTO(Builder builder) {
+        this.total = builder.total;
+        this.ids = Collections.unmodifiableList(builder.ids);
+        this.counts = Collections.unmodifiableMap(builder.counts);
+    }
+
+    public long getTotal() {
+        return total;
+    }
+
+    public List<String> getIds() {
+        return ids;
+    }
+
+    /** Number of matching products per facet and value. */
+    public Map<String, Map<String, Integer>> getCounts() {
+        return counts;
+    }
+
+    public static class Builder {
+
+        private long total;
+        private List<String> ids = Collections.emptyList();
+        private Map<String, Map<String, Integer>> counts = Collections.emptyMap();
+
+        public Builder withTotal(long total) {
+            this.total = total;
+            return this;
+        }
+
+        public Builder withIds(List<String> ids) {
+            this.ids = ids;
+            return this;
+        }
+
+        public Builder withCounts(Map<String, Map<String, Integer>> counts) {
+            this.counts = counts;
+            return this;
+        }
+
+        public FacetResultDTO build() {
+            return new FacetResultDTO(this);
+        }
+    }
+}
@@ -0,0 +1,67 @@
+package hu.tomlincoln.catalogsync.dto;
+
+import hu.tomlincoln.catalogsync.domain.AgeGroup;
+import hu.tomlincoln.catalogsync.domain.ProductAvailability;
+
+public class ProductFilterDTO {
+
+    private final ProductAvailability availability;
+    private final String brand;
+    private final AgeGroup ageGroup;
+    private final String googleProductCategory;
+
+    private ProductFilterDTO(Builder builder) {
+        this.availability = builder.availability;
+        this.brand = builder.brand;
+        this.ageGroup = builder.ageGroup;
+        this.googleProductCategory = builder.googleProductCategory;
+    }
+
+    public ProductAvailability getAvailability() {
+        return availability;
+    }
+
+    public String getBrand() {
+        return brand;
+    }
+
+    public AgeGroup getAgeGroup() {
+        return ageGroup;
+    }
+
+    public String getGoogleProductCategory() {
+        return googleProductCategory;
+    }
+
+    public static class Builder {
+
+        private ProductAvailability availability;
+        private String brand;
+        private AgeGroup ageGroup;
+        private String googleProductCategory;
+
+        public Builder withAvailability(ProductAvailability availability) {
+            this.availability = availability;
+            return this;
+        }
+
+        public Builder withBrand(String brand) {
+            this.brand = brand;
+            return this;
+        }
+
+        public Builder withAgeGroup(AgeGroup ageGroup) {
+            this.ageGroup = ageGroup;
+            return this;
+        }
+
+        public Builder withGoogleProductCategory(String googleProductCategory) {
+            this.googleProductCategory = googleProductCategory;
+            return this;
+        }
+
+        public ProductFilterDTO build() {
+            return new ProductFilterDTO(this);
+        }
+    }
+}
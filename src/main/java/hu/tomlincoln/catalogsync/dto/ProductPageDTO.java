@@ -0,0 +1,59 @@
+package hu.tomlincoln.catalogsync.dto;
+
+import hu.tomlincoln.catalogsync.domain.Product;
+
+import java.util.Collections;
+import java.util.List;
+
+public class ProductPageDTO {
+
+    private final List<Product> products;
+    private final String nextCursor;
+    private final long version;
+
+    private ProductPageDTO(Builder builder) {
+        this.products = Collections.unmodifiableList(builder.products);
+        this.nextCursor = builder.nextCursor;
+        this.version = builder.version;
+    }
+
+    public List<Product> getProducts() {
+        return products;
+    }
+
+    /** The id to pass as "after" for the next page, null on the last page. */
+    public String getNextCursor() {
+        return nextCursor;
+    }
+
+    /** The catalog version the page was read from, pass it with the next pages to read them from the same. */
+    public long getVersion() {
+        return version;
+    }
+
+    public static class Builder {
+
+        private List<Product> products = Collections.emptyList();
+        private String nextCursor;
+        private long version;
+
+        public Builder withProducts(List<Product> products) {
+            this.products = products;
+            return this;
+        }
+
+        public Builder withNextCursor(String nextCursor) {
+            this.nextCursor = nextCursor;
+            return this;
+        }
+
+        public Builder withVersion(long version) {
+            this.version = version;
+            return this;
+        }
+
+        public ProductPageDTO build() {
+            return new ProductPageDTO(this);
+        }
+    }
+}
@@ -0,0 +1,53 @@
+package hu.tomlincoln.catalogsync.dto;
+
+public class SearchHitDTO {
+
+    private final String id;
+    private final String title;
+    private final double score;
+
+    private SearchHitDTO(Builder builder) {
+        this.id = builder.id;
+        this.title = builder.title;
+        this.score = builder.score;
+    }
+
+    public String getId() {
+        return id;
+    }
+
+    public String getTitle() {
+        return title;
+    }
+
+    /** BM25 relevance, higher is better. */
+    public double getScore() {
+        return score;
+    }
+
+    public static class Builder {
+
+        private String id;
+        private String title;
+        private double score;
+
+        public Builder withId(String id) {
+            this.id = id;
+            return this;
+        }
+
+        public Builder withTitle(String title) {
+            this.title = title;
+            return this;
+        }
+
+        public Builder withScore(double score) {
+            this.score = score;
+            return this;
+        }
+
+        public SearchHitDTO build() {
+            return new SearchHitDTO(this);
+        }
+    }
+}
@@ -0,0 +1,93 @@
+package hu.tomlincoln.catalogsync.dto;
+
+import java.time.Instant;
+
+public class SyncJobDTO {
+
+    private final String id;
+    private final String feed;
+    private final SyncJobStatus status;
+    private final Instant startedAt;
+    private final ReportDTO report;
+    private final String errorMessage;
+
+    private SyncJobDTO(Builder builder) {
+        this.id = builder.id;
+        this.feed = builder.feed;
+        this.status = builder.status;
+        this.startedAt = builder.startedAt;
+        this.report = builder.report;
+        this.errorMessage = builder.errorMessage;
+    }
+
+    public String getId() {
+        return id;
+    }
+
+    public String getFeed() {
+        return feed;
+    }
+
+    public SyncJobStatus getStatus() {
+        return status;
+    }
+
+    /** Only set once the job left the queue. */
+    public Instant getStartedAt() {
+        return startedAt;
+    }
+
+    /** Only set once the job is done. */
+    public ReportDTO getReport() {
+        return report;
+    }
+
+    /** Only set if the job failed. */
+    public String getErrorMessage() {
+        return errorMessage;
+    }
+
+    public static class Builder {
+
+        private String id;
+        private String feed;
+        private SyncJobStatus status;
+        private Instant startedAt;
+        private ReportDTO report;
+        private String errorMessage;
+
+        public Builder withId(String id) {
+            this.id = id;
+            return this;
+        }
+
+        public Builder withFeed(String feed) {
+            this.feed = feed;
+            return this;
+        }
+
+        public Builder withStatus(SyncJobStatus status) {
+            this.status = status;
+            return this;
+        }
+
+        public Builder withStartedAt(Instant startedAt) {
+            this.startedAt = startedAt;
+            return this;
+        }
+
+        public Builder withReport(ReportDTO report) {
+            this.report = report;
+            return this;
+        }
+
+        public Builder withErrorMessage(String errorMessage) {
+            this.errorMessage = errorMessage;
+            return this;
+        }
+
+        public SyncJobDTO build() {
+            return new SyncJobDTO(this);
+        }
+    }
+}
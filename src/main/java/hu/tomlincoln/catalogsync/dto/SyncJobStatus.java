@@ -0,0 +1,10 @@
+package hu.tomlincoln.catalogsync.dto;
+
+public enum SyncJobStatus {
+
+    QUEUED,
+    RUNNING,
+    DONE,
+    FAILED
+
+}
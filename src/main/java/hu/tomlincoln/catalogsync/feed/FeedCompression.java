@@ -0,0 +1,89 @@
+package hu.tomlincoln.catalogsync.feed;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Locale;
+import java.util.zip.DataFormatException;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.Inflater;
+import java.util.zip.InflaterInputStream;
+
+/**
+ * Compression of a feed file, detected from its first bytes and, for raw deflate that has no header, its extension.
+ * The two bytes of a zlib header also start plenty of plain feeds, so a zlib header is only trusted if the block after
+ * it inflates. A compressed feed is inflated while it is read, it is never inflated to disk or to the heap as a whole.
+ */
+public enum FeedCompression {
+
+    NONE,
+    GZIP,
+    // Deflate with a zlib header, what HTTP calls deflate
+    ZLIB,
+    // Deflate without any header
+    DEFLATE;
+
+    private static final int INFLATE_BUFFER_SIZE = 64 * 1024;
+
+    public static FeedCompression detect(Path path) throws IOException {
+        byte[] head = new byte[INFLATE_BUFFER_SIZE];
+        int read;
+        try (InputStream inputStream = Files.newInputStream(path)) {
+            read = inputStream.readNBytes(head, 0, head.length);
+        }
+        String filename = path.getFileName().toString().toLowerCase(Locale.ROOT);
+        if (read >= 2 && (head[0] & 0xff) == 0x1f && (head[1] & 0xff) == 0x8b) {
+            return GZIP;
+        }
+        if (read >= 2 && isZlibHeader(head[0] & 0xff, head[1] & 0xff) && inflates(head, read)) {
+            return ZLIB;
+        }
+        if (filename.endsWith(".gz") || filename.endsWith(".gzip")) {
+            return GZIP;
+        }
+        if (filename.endsWith(".zz")) {
+            return ZLIB;
+        }
+        return filename.endsWith(".deflate") ? DEFLATE : NONE;
+    }
+
+    /** Wraps the stream so it is inflated as it is read. */
+    public InputStream decompress(InputStream inputStream) throws IOException {
+        switch (this) {
+            case GZIP:
+                return new GZIPInputStream(inputStream, INFLATE_BUFFER_SIZE);
+            case ZLIB:
+                return new InflaterInputStream(inputStream, new Inflater(), INFLATE_BUFFER_SIZE);
+            case DEFLATE:
+                return new InflaterInputStream(inputStream, new Inflater(true), INFLATE_BUFFER_SIZE);
+            default:
+                return inputStream;
+        }
+    }
+
+    /** Whether the start of the file inflates as zlib without errors, the rest of the stream may be cut off. */
+    private static boolean inflates(byte[] head, int length) {
+        Inflater inflater = new Inflater();
+        try {
+            inflater.setInput(head, 0, length);
+            byte[] output = new byte[INFLATE_BUFFER_SIZE];
+            while (!inflater.finished() && !inflater.needsInput()) {
+                if (inflater.inflate(output) == 0 && inflater.needsDictionary()) {
+                    // Feeds are never compressed with a preset dictionary
+                    return false;
+                }
+            }
+            return inflater.getBytesWritten() > 0;
+        } catch (DataFormatException e) {
+            return false;
+        } finally {
+            inflater.end();
+        }
+    }
+
+    private static boolean isZlibHeader(int cmf, int flg) {
+        // Deflate method with a window of at most 32K, and the header checksum of RFC 1950
+        return (cmf & 0x0f) == 8 && (cmf >> 4) <= 7 && ((cmf << 8) | flg) % 31 == 0;
+    }
+}
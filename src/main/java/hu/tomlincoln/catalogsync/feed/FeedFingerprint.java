@@ -0,0 +1,67 @@
+package hu.tomlincoln.catalogsync.feed;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Objects;
+import java.util.zip.CRC32C;
+
+/**
+ * Size, modification time and content checksum of a feed file, as it is on disk. The checksum is a CRC32C over
+ * memory mapped windows, which the JVM computes with hardware instructions, so it is far cheaper than parsing.
+ */
+public final class FeedFingerprint {
+
+    private static final int WINDOW_SIZE = 32 * 1024 * 1024;
+
+    private final long size;
+    private final long modifiedAt;
+    private final long contentHash;
+
+    public FeedFingerprint(long size, long modifiedAt, long contentHash) {
+        this.size = size;
+        this.modifiedAt = modifiedAt;
+        this.contentHash = contentHash;
+    }
+
+    public static FeedFingerprint of(Path path) throws IOException {
+        long modifiedAt = Files.getLastModifiedTime(path).toMillis();
+        CRC32C crc = new CRC32C();
+        long size;
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            size = channel.size();
+            for (long position = 0; position < size; position += WINDOW_SIZE) {
+                long length = Math.min(WINDOW_SIZE, size - position);
+                crc.update(channel.map(FileChannel.MapMode.READ_ONLY, position, length));
+            }
+        }
+        return new FeedFingerprint(size, modifiedAt, crc.getValue());
+    }
+
+    public long getSize() {
+        return size;
+    }
+
+    public long getModifiedAt() {
+        return modifiedAt;
+    }
+
+    public long getContentHash() {
+        return contentHash;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (!(o instanceof FeedFingerprint)) return false;
+        FeedFingerprint that = (FeedFingerprint) o;
+        return size == that.size && modifiedAt == that.modifiedAt && contentHash == that.contentHash;
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(size, modifiedAt, contentHash);
+    }
+}
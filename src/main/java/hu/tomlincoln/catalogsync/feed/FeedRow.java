@@ -0,0 +1,215 @@
+package hu.tomlincoln.catalogsync.feed;
+
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * One feed line seen through field offsets. The row does not own its bytes: fields are only decoded into
+ * {@link String}s when {@link #field(int)} is called. Quotes are already stripped from the offsets.
+ * A row handed out by {@link FeedTokenizer} is reused for the next line, use {@link #copy()} to keep it.
+ */
+public final class FeedRow {
+
+    private static final int INITIAL_FIELDS = 16;
+
+    private ByteBuffer buffer;
+    private int lineStart;
+    private int lineEnd;
+    private int[] bounds;
+    private int fieldCount;
+    private byte[] scratch;
+    private long lineHash;
+    private boolean lineHashed;
+
+    FeedRow() {
+        this.bounds = new int[INITIAL_FIELDS * 2];
+    }
+
+    private FeedRow(byte[] line, int[] bounds, int fieldCount) {
+        this.buffer = ByteBuffer.wrap(line);
+        this.lineEnd = line.length;
+        this.bounds = bounds;
+        this.fieldCount = fieldCount;
+    }
+
+    /**
+     * Builds a row from already split fields. Nulls become empty fields and one pair of quotes is stripped,
+     * the same way {@code Product.cleanProductArrayFromParenthesis} does it.
+     */
+    public static FeedRow of(String[] fields) {
+        byte[][] encoded = new byte[fields.length][];
+        int size = 0;
+        for (int i = 0; i < fields.length; i++) {
+            encoded[i] = fields[i] == null ? new byte[0] : fields[i].getBytes(StandardCharsets.UTF_8);
+            size += encoded[i].length;
+        }
+        byte[] line = new byte[size];
+        FeedRow row = new FeedRow();
+        row.reset(ByteBuffer.wrap(line), 0);
+        int position = 0;
+        for (byte[] field : encoded) {
+            System.arraycopy(field, 0, line, position, field.length);
+            row.addField(position, position + field.length, 1);
+            position += field.length;
+        }
+        row.lineEnd = size;
+        return row;
+    }
+
+    void reset(ByteBuffer buffer, int lineStart) {
+        this.buffer = buffer;
+        this.lineStart = lineStart;
+        this.fieldCount = 0;
+        this.lineHashed = false;
+    }
+
+    void addField(int start, int end, int quoteLayers) {
+        for (int layer = 0; layer < quoteLayers; layer++) {
+            if (start < end && buffer.get(start) == '"') {
+                start++;
+            }
+            if (start < end && buffer.get(end - 1) == '"') {
+                end--;
+            }
+        }
+        if (fieldCount * 2 == bounds.length) {
+            bounds = Arrays.copyOf(bounds, bounds.length * 2);
+        }
+        bounds[fieldCount * 2] = start;
+        bounds[fieldCount * 2 + 1] = end;
+        fieldCount++;
+    }
+
+    void finish(int lineEnd, int fieldCount) {
+        this.lineEnd = lineEnd;
+        this.fieldCount = fieldCount;
+    }
+
+    public int fieldCount() {
+        return fieldCount;
+    }
+
+    /** Length of the field in UTF-8 bytes. */
+    public int byteLength(int field) {
+        return bounds[field * 2 + 1] - bounds[field * 2];
+    }
+
+    public byte byteAt(int field, int index) {
+        return buffer.get(bounds[field * 2] + index);
+    }
+
+    /** Length of the field in UTF-16 chars, i.e. what {@link String#length()} would give, without decoding it. */
+    public int charLength(int field) {
+        int length = 0;
+        for (int i = bounds[field * 2], end = bounds[field * 2 + 1]; i < end; i++) {
+            byte b = buffer.get(i);
+            if ((b & 0xC0) != 0x80) {
+                // Four byte sequences are a surrogate pair in UTF-16
+                length += (b & 0xF8) == 0xF0 ? 2 : 1;
+            }
+        }
+        return length;
+    }
+
+    public boolean isAscii(int field) {
+        for (int i = bounds[field * 2], end = bounds[field * 2 + 1]; i < end; i++) {
+            if (buffer.get(i) < 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    public String field(int field) {
+        int start = bounds[field * 2];
+        int length = bounds[field * 2 + 1] - start;
+        if (buffer.hasArray()) {
+            return new String(buffer.array(), buffer.arrayOffset() + start, length, StandardCharsets.UTF_8);
+        }
+        if (scratch == null || scratch.length < length) {
+            scratch = new byte[Math.max(length, 256)];
+        }
+        for (int i = 0; i < length; i++) {
+            scratch[i] = buffer.get(start + i);
+        }
+        return new String(scratch, 0, length, StandardCharsets.UTF_8);
+    }
+
+    /** 64-bit hash of the raw bytes of the line, quotes included and the line terminator excluded. */
+    public long lineHash() {
+        if (!lineHashed) {
+            lineHash = hash(buffer, lineStart, lineEnd);
+            lineHashed = true;
+        }
+        return lineHash;
+    }
+
+    /** 64-bit hash of the field's bytes, the same as {@link #hash(String)} of {@link #field(int)} for UTF-8 input. */
+    public long fieldHash(int field) {
+        return hash(buffer, bounds[field * 2], bounds[field * 2 + 1]);
+    }
+
+    public static long hash(String value) {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        return hash(ByteBuffer.wrap(bytes), 0, bytes.length);
+    }
+
+    /** Mixes eight bytes at a time, then finishes with the MurmurHash3 mixer, like the content hash of a product. */
+    private static long hash(ByteBuffer buffer, int from, int to) {
+        long hash = 0xcbf29ce484222325L ^ (to - from);
+        int i = from;
+        for (; i + Long.BYTES <= to; i += Long.BYTES) {
+            hash = (hash ^ buffer.getLong(i)) * 0x9e3779b97f4a7c15L;
+            hash ^= hash >>> 32;
+        }
+        for (; i < to; i++) {
+            hash = (hash ^ buffer.get(i)) * 0x100000001b3L;
+        }
+        hash = (hash ^ (hash >>> 33)) * 0xff51afd7ed558ccdL;
+        hash = (hash ^ (hash >>> 33)) * 0xc4ceb9fe1a85ec53L;
+        return hash ^ (hash >>> 33);
+    }
+
+    public String[] toArray() {
+        String[] fields = new String[fieldCount];
+        for (int i = 0; i < fieldCount; i++) {
+            fields[i] = field(i);
+        }
+        return fields;
+    }
+
+    int lineLength() {
+        return lineEnd - lineStart;
+    }
+
+    /** Writes the raw line prefixed with its length, quotes included and the line terminator excluded. */
+    void writeLine(DataOutputStream out) throws IOException {
+        out.writeInt(lineEnd - lineStart);
+        if (buffer.hasArray()) {
+            out.write(buffer.array(), buffer.arrayOffset() + lineStart, lineEnd - lineStart);
+        } else {
+            for (int i = lineStart; i < lineEnd; i++) {
+                out.write(buffer.get(i));
+            }
+        }
+    }
+
+    /** Copies the line into its own compact byte array, so the row survives the tokenizer moving on. */
+    public FeedRow copy() {
+        byte[] line = new byte[lineEnd - lineStart];
+        ByteBuffer source = buffer.duplicate();
+        source.limit(lineEnd).position(lineStart);
+        source.get(line);
+        int[] copiedBounds = new int[fieldCount * 2];
+        for (int i = 0; i < copiedBounds.length; i++) {
+            copiedBounds[i] = bounds[i] - lineStart;
+        }
+        FeedRow copy = new FeedRow(line, copiedBounds, fieldCount);
+        copy.lineHash = lineHash;
+        copy.lineHashed = lineHashed;
+        return copy;
+    }
+}
@@ -0,0 +1,383 @@
+package hu.tomlincoln.catalogsync.feed;
+
+import hu.tomlincoln.catalogsync.domain.AgeGroup;
+import hu.tomlincoln.catalogsync.domain.ProductAvailability;
+import hu.tomlincoln.catalogsync.domain.ProductCondition;
+
+import java.math.BigDecimal;
+import java.net.MalformedURLException;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Currency;
+import java.util.List;
+
+/**
+ * Validates feed rows directly on their bytes. Everything that used to be looked up or parsed per row is compiled
+ * once into lookup tables here, and the checks answer exactly what {@code new BigDecimal}, {@code Currency.getInstance}
+ * and {@code new URL} would, without throwing. Only rare inputs the scanners do not cover (non-ASCII characters in
+ * enum, number and port fields, exponents, IPv6 hosts) fall back to the JDK parsers.
+ */
+public final class FeedRowValidator {
+
+    public static final int VALID = -1;
+    public static final int WRONG_FIELD_COUNT = -2;
+
+    public static final int FIELD_COUNT = 12;
+    public static final int ID = 0;
+    public static final int TITLE = 1;
+    public static final int DESCRIPTION = 2;
+    public static final int AVAILABILITY = 3;
+    public static final int CONDITION = 4;
+    public static final int PRICE = 5;
+    public static final int SALE_PRICE = 6;
+    public static final int LINK = 7;
+    public static final int BRAND = 8;
+    public static final int IMAGE_LINK = 9;
+    public static final int AGE_GROUP = 10;
+    public static final int GOOGLE_PRODUCT_CATEGORY = 11;
+
+    private final EnumTable availabilities = new EnumTable(ProductAvailability.values());
+    private final EnumTable conditions = new EnumTable(ProductCondition.values());
+    private final EnumTable ageGroups = new EnumTable(AgeGroup.values());
+    private final boolean[] currencyCodes = new boolean[26 * 26 * 26];
+
+    public FeedRowValidator() {
+        for (Currency currency : Currency.getAvailableCurrencies()) {
+            int code = currencyCodeIndex(currency.getCurrencyCode());
+            if (code >= 0) {
+                currencyCodes[code] = true;
+            }
+        }
+    }
+
+    /**
+     * Returns {@link #VALID}, {@link #WRONG_FIELD_COUNT} or the index of the first invalid field, checking the fields
+     * in the order the error report always used.
+     */
+    public int validate(FeedRow row) {
+        if (row.fieldCount() != FIELD_COUNT) {
+            return WRONG_FIELD_COUNT;
+        }
+        if (row.charLength(ID) > 50) {
+            return ID;
+        }
+        if (row.charLength(TITLE) > 100) {
+            return TITLE;
+        }
+        if (row.charLength(DESCRIPTION) > 5000) {
+            return DESCRIPTION;
+        }
+        if (!availabilities.matches(row, AVAILABILITY)) {
+            return AVAILABILITY;
+        }
+        // Empty condition defaults to NEW
+        if (row.byteLength(CONDITION) > 0 && !conditions.matches(row, CONDITION)) {
+            return CONDITION;
+        }
+        if (!isPrice(row, PRICE)) {
+            return PRICE;
+        }
+        if (!isPrice(row, SALE_PRICE)) {
+            return SALE_PRICE;
+        }
+        if (!isLink(row, LINK)) {
+            return LINK;
+        }
+        if (row.charLength(BRAND) > 50) {
+            return BRAND;
+        }
+        if (!isLink(row, IMAGE_LINK)) {
+            return IMAGE_LINK;
+        }
+        // Empty age group means NOT_SPECIFIED
+        if (row.byteLength(AGE_GROUP) > 0 && !ageGroups.matches(row, AGE_GROUP)) {
+            return AGE_GROUP;
+        }
+        if (!isCategory(row, GOOGLE_PRODUCT_CATEGORY)) {
+            return GOOGLE_PRODUCT_CATEGORY;
+        }
+        return VALID;
+    }
+
+    /** Same as the former {@code ^\d+$|^[^\d]+$} pattern: only ASCII digits, or no ASCII digit at all. */
+    private boolean isCategory(FeedRow row, int field) {
+        int length = row.byteLength(field);
+        if (length == 0) {
+            return false;
+        }
+        int digits = 0;
+        for (int i = 0; i < length; i++) {
+            if (isDigit(row.byteAt(field, i))) {
+                digits++;
+            }
+        }
+        return digits == 0 || digits == length;
+    }
+
+    /**
+     * Same as splitting on a single space into exactly two parts, then parsing them with {@code new BigDecimal} and
+     * {@code Currency.getInstance}. Like {@code String.split}, trailing spaces do not count.
+     */
+    private boolean isPrice(FeedRow row, int field) {
+        int end = row.byteLength(field);
+        while (end > 0 && row.byteAt(field, end - 1) == ' ') {
+            end--;
+        }
+        int space = -1;
+        for (int i = 0; i < end; i++) {
+            if (row.byteAt(field, i) == ' ') {
+                if (space >= 0) {
+                    return false;
+                }
+                space = i;
+            }
+        }
+        if (space < 0 || end - space - 1 != 3) {
+            return false;
+        }
+        return isCurrencyCode(row, field, space + 1) && isDecimal(row, field, space);
+    }
+
+    private boolean isCurrencyCode(FeedRow row, int field, int start) {
+        int index = 0;
+        for (int i = start; i < start + 3; i++) {
+            byte b = row.byteAt(field, i);
+            if (b < 'A' || b > 'Z') {
+                return false;
+            }
+            index = index * 26 + b - 'A';
+        }
+        return currencyCodes[index];
+    }
+
+    private boolean isDecimal(FeedRow row, int field, int end) {
+        int i = 0;
+        if (end > 0 && (row.byteAt(field, 0) == '+' || row.byteAt(field, 0) == '-')) {
+            i++;
+        }
+        int digits = 0;
+        boolean point = false;
+        for (; i < end; i++) {
+            byte b = row.byteAt(field, i);
+            if (isDigit(b)) {
+                digits++;
+            } else if (b == '.' && !point) {
+                point = true;
+            } else if (b == 'e' || b == 'E' || b < 0) {
+                // Exponents and non-ASCII digits are rare enough to be left to BigDecimal itself
+                return isDecimalSlow(row.field(field).substring(0, charIndex(row, field, end)));
+            } else {
+                return false;
+            }
+        }
+        return digits > 0;
+    }
+
+    private static boolean isDecimalSlow(String value) {
+        try {
+            new BigDecimal(value);
+            return true;
+        } catch (NumberFormatException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Same as the former {@code startsWith("http")} plus {@code new URL(...)} check. For http and https the URL
+     * constructor only fails on the protocol and on the port of the authority, so only those are scanned.
+     */
+    private boolean isLink(FeedRow row, int field) {
+        int length = row.byteLength(field);
+        if (length < 4 || row.byteAt(field, 0) != 'h' || row.byteAt(field, 1) != 't'
+                || row.byteAt(field, 2) != 't' || row.byteAt(field, 3) != 'p') {
+            return false;
+        }
+        int limit = length;
+        while (limit > 0 && (row.byteAt(field, limit - 1) & 0xFF) <= ' ') {
+            limit--;
+        }
+        int colon = -1;
+        for (int i = 0; i < limit; i++) {
+            byte b = row.byteAt(field, i);
+            if (b == '/') {
+                break;
+            }
+            if (b == ':') {
+                colon = i;
+                break;
+            }
+        }
+        boolean https = colon == 5 && (row.byteAt(field, 4) == 's' || row.byteAt(field, 4) == 'S');
+        if (colon != 4 && !https) {
+            // No protocol, or a protocol other than http and https
+            return false;
+        }
+        int start = colon + 1;
+        int fragment = indexOf(row, field, '#', start, limit);
+        if (fragment >= 0) {
+            limit = fragment;
+        }
+        int query = indexOf(row, field, '?', start, limit);
+        if (query >= 0) {
+            limit = query;
+        }
+        boolean unc = start <= limit - 4 && row.byteAt(field, start) == '/' && row.byteAt(field, start + 1) == '/'
+                && row.byteAt(field, start + 2) == '/' && row.byteAt(field, start + 3) == '/';
+        if (unc || start > limit - 2 || row.byteAt(field, start) != '/' || row.byteAt(field, start + 1) != '/') {
+            // No authority, the rest of the URL is taken as it is
+            return true;
+        }
+        int authorityStart = start + 2;
+        int authorityEnd = indexOf(row, field, '/', authorityStart, limit);
+        if (authorityEnd < 0) {
+            authorityEnd = limit;
+        }
+        int hostStart = authorityStart;
+        int at = indexOf(row, field, '@', authorityStart, authorityEnd);
+        if (at >= 0) {
+            if (indexOf(row, field, '@', at + 1, authorityEnd) >= 0) {
+                // More than one @ means the authority is not server based, nothing more is parsed
+                return true;
+            }
+            hostStart = at + 1;
+        }
+        if (hostStart < authorityEnd && row.byteAt(field, hostStart) == '[') {
+            return isLinkSlow(row.field(field));
+        }
+        int portSeparator = indexOf(row, field, ':', hostStart, authorityEnd);
+        if (portSeparator < 0 || portSeparator + 1 == authorityEnd) {
+            return true;
+        }
+        return isPort(row, field, portSeparator + 1, authorityEnd);
+    }
+
+    /** Same as {@code Integer.parseInt} followed by the URL's {@code port < -1} check. */
+    private boolean isPort(FeedRow row, int field, int start, int end) {
+        boolean negative = row.byteAt(field, start) == '-';
+        int i = negative || row.byteAt(field, start) == '+' ? start + 1 : start;
+        if (i == end) {
+            return false;
+        }
+        long port = 0;
+        for (; i < end; i++) {
+            byte b = row.byteAt(field, i);
+            if (b < 0) {
+                return isLinkSlow(row.field(field));
+            }
+            if (!isDigit(b)) {
+                return false;
+            }
+            port = port * 10 + b - '0';
+            if (port > Integer.MAX_VALUE + 1L) {
+                return false;
+            }
+        }
+        return negative ? port <= 1 : port <= Integer.MAX_VALUE;
+    }
+
+    private static boolean isLinkSlow(String link) {
+        try {
+            new URL(link);
+            return true;
+        } catch (MalformedURLException e) {
+            return false;
+        }
+    }
+
+    private static int indexOf(FeedRow row, int field, char c, int from, int to) {
+        for (int i = from; i < to; i++) {
+            if (row.byteAt(field, i) == c) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private static int charIndex(FeedRow row, int field, int byteIndex) {
+        int chars = 0;
+        for (int i = 0; i < byteIndex; i++) {
+            byte b = row.byteAt(field, i);
+            if ((b & 0xC0) != 0x80) {
+                chars += (b & 0xF8) == 0xF0 ? 2 : 1;
+            }
+        }
+        return chars;
+    }
+
+    private static boolean isDigit(byte b) {
+        return b >= '0' && b <= '9';
+    }
+
+    private static int currencyCodeIndex(String code) {
+        if (code.length() != 3) {
+            return -1;
+        }
+        int index = 0;
+        for (int i = 0; i < 3; i++) {
+            char c = code.charAt(i);
+            if (c < 'A' || c > 'Z') {
+                return -1;
+            }
+            index = index * 26 + c - 'A';
+        }
+        return index;
+    }
+
+    /**
+     * Case-insensitive lookup of enum names, where a space in the value stands for an underscore. Names are grouped by
+     * length, so a value is only compared with the few names it can match.
+     */
+    private static final class EnumTable {
+
+        private final Enum<?>[] values;
+        private final byte[][][] namesByLength;
+
+        private EnumTable(Enum<?>[] values) {
+            this.values = values;
+            int maxLength = Arrays.stream(values).mapToInt(value -> value.name().length()).max().orElse(0);
+            List<List<byte[]>> grouped = new ArrayList<>();
+            for (int i = 0; i <= maxLength; i++) {
+                grouped.add(new ArrayList<>());
+            }
+            for (Enum<?> value : values) {
+                grouped.get(value.name().length()).add(value.name().getBytes(StandardCharsets.US_ASCII));
+            }
+            namesByLength = grouped.stream().map(names -> names.toArray(new byte[0][])).toArray(byte[][][]::new);
+        }
+
+        private boolean matches(FeedRow row, int field) {
+            if (!row.isAscii(field)) {
+                // Some non-ASCII characters are equal to ASCII letters when case is ignored, equalsIgnoreCase knows them
+                String value = row.field(field).replace(" ", "_");
+                return Arrays.stream(values).map(Enum::name).anyMatch(name -> name.equalsIgnoreCase(value));
+            }
+            int length = row.byteLength(field);
+            if (length >= namesByLength.length) {
+                return false;
+            }
+            for (byte[] name : namesByLength[length]) {
+                if (equalsName(row, field, name)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        private static boolean equalsName(FeedRow row, int field, byte[] name) {
+            for (int i = 0; i < name.length; i++) {
+                byte b = row.byteAt(field, i);
+                if (b == ' ') {
+                    b = '_';
+                } else if (b >= 'a' && b <= 'z') {
+                    b -= 'a' - 'A';
+                }
+                if (b != name[i]) {
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
+}
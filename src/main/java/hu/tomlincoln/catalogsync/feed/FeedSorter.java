@@ -0,0 +1,216 @@
+package hu.tomlincoln.catalogsync.feed;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+
+/**
+ * External sort of feed rows by id. Rows are buffered until the buffer size is reached, then the buffer is sorted and
+ * spilled to a temporary file as a run of raw lines. Reading merges the runs, so memory is bounded by the buffer size
+ * and not by the size of the feed. Of rows with the same id only the first one in feed order is returned.
+ * <p>
+ * Rows are added, then {@link #finish()} is called once, then the rows are read with {@link #next()}.
+ */
+public final class FeedSorter implements Closeable {
+
+    /** Orders ids like SQLite compares TEXT by default: by their UTF-8 bytes, which is code point order. */
+    public static final Comparator<String> ID_ORDER = FeedSorter::compareCodePoints;
+
+    // Rough size of an entry and its row besides the line and id characters
+    private static final int ENTRY_OVERHEAD = 128;
+    private static final int STREAM_BUFFER_SIZE = 64 * 1024;
+
+    private final long bufferSize;
+    private final Path spillDirectory;
+    private final List<Entry> buffer = new ArrayList<>();
+    private final List<Run> runs = new ArrayList<>();
+    private long buffered;
+    private PriorityQueue<Run> merge;
+    private int position;
+    private String lastId;
+
+    public FeedSorter(long bufferSize, Path spillDirectory) {
+        this.bufferSize = bufferSize;
+        this.spillDirectory = spillDirectory;
+    }
+
+    /** Adds a row the sorter can keep, i.e. one that does not share its bytes with a tokenizer. */
+    public void add(FeedRow row) throws IOException {
+        Entry entry = new Entry(row.field(0), row);
+        buffer.add(entry);
+        buffered += entry.row.lineLength() + entry.id.length() * 2L + ENTRY_OVERHEAD;
+        if (buffered >= bufferSize) {
+            spill();
+        }
+    }
+
+    /** Sorts what is left in the buffer. If anything was spilled, the rest is spilled too and the runs get merged. */
+    public void finish() throws IOException {
+        if (runs.isEmpty()) {
+            buffer.sort(Entry.ORDER);
+            return;
+        }
+        if (!buffer.isEmpty()) {
+            spill();
+        }
+        merge = new PriorityQueue<>(runs.size(), Run.ORDER);
+        for (Run run : runs) {
+            run.open();
+            if (run.advance()) {
+                merge.add(run);
+            }
+        }
+    }
+
+    /** Next row in id order, or null when every row was read. */
+    public FeedRow next() throws IOException {
+        while (true) {
+            String id;
+            FeedRow row;
+            if (merge == null) {
+                if (position == buffer.size()) {
+                    return null;
+                }
+                Entry entry = buffer.get(position++);
+                id = entry.id;
+                row = entry.row;
+            } else {
+                Run run = merge.poll();
+                if (run == null) {
+                    return null;
+                }
+                id = run.id;
+                row = run.row;
+                if (run.advance()) {
+                    merge.add(run);
+                }
+            }
+            // The sort is stable and runs are merged in feed order, so the first row of an id is its first occurrence
+            if (!id.equals(lastId)) {
+                lastId = id;
+                return row;
+            }
+        }
+    }
+
+    /** Number of runs spilled to disk. */
+    public int spilledRuns() {
+        return runs.size();
+    }
+
+    @Override
+    public void close() throws IOException {
+        IOException failure = null;
+        for (Run run : runs) {
+            try {
+                run.close();
+            } catch (IOException e) {
+                failure = e;
+            }
+        }
+        if (failure != null) {
+            throw failure;
+        }
+    }
+
+    private void spill() throws IOException {
+        buffer.sort(Entry.ORDER);
+        Path file = Files.createTempFile(spillDirectory, "feed-run-", ".tmp");
+        Run run = new Run(file, runs.size(), buffer.size());
+        // Registered before writing, so the file is deleted on close even if writing fails
+        runs.add(run);
+        try (DataOutputStream out = new DataOutputStream(
+                new BufferedOutputStream(Files.newOutputStream(file), STREAM_BUFFER_SIZE))) {
+            for (Entry entry : buffer) {
+                entry.row.writeLine(out);
+            }
+        }
+        buffer.clear();
+        buffered = 0;
+    }
+
+    private static int compareCodePoints(String a, String b) {
+        int i = 0;
+        int j = 0;
+        while (i < a.length() && j < b.length()) {
+            int codePointA = a.codePointAt(i);
+            int codePointB = b.codePointAt(j);
+            if (codePointA != codePointB) {
+                return Integer.compare(codePointA, codePointB);
+            }
+            i += Character.charCount(codePointA);
+            j += Character.charCount(codePointB);
+        }
+        return Integer.compare(a.length() - i, b.length() - j);
+    }
+
+    private static final class Entry {
+        private static final Comparator<Entry> ORDER = Comparator.comparing(entry -> entry.id, ID_ORDER);
+
+        private final String id;
+        private final FeedRow row;
+
+        private Entry(String id, FeedRow row) {
+            this.id = id;
+            this.row = row;
+        }
+    }
+
+    private static final class Run implements Closeable {
+        private static final Comparator<Run> ORDER = Comparator.<Run, String>comparing(run -> run.id, ID_ORDER)
+                .thenComparingInt(run -> run.index);
+
+        private final Path file;
+        private final int index;
+        private int remaining;
+        private DataInputStream in;
+        private String id;
+        private FeedRow row;
+
+        private Run(Path file, int index, int rows) {
+            this.file = file;
+            this.index = index;
+            this.remaining = rows;
+        }
+
+        private void open() throws IOException {
+            in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file), STREAM_BUFFER_SIZE));
+        }
+
+        private boolean advance() throws IOException {
+            if (remaining == 0) {
+                return false;
+            }
+            remaining--;
+            byte[] line = new byte[in.readInt()];
+            in.readFully(line);
+            // The line is tokenized again, which splits it exactly like the window it came from did
+            FeedTokenizer tokenizer = new FeedTokenizer(ByteBuffer.wrap(line));
+            tokenizer.next();
+            row = tokenizer.row();
+            id = row.field(0);
+            return true;
+        }
+
+        @Override
+        public void close() throws IOException {
+            try {
+                if (in != null) {
+                    in.close();
+                }
+            } finally {
+                Files.deleteIfExists(file);
+            }
+        }
+    }
+}
@@ -0,0 +1,22 @@
+package hu.tomlincoln.catalogsync.feed;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+/**
+ * A feed cut into line aligned windows. A window is only valid until the next one is requested, rows that outlive
+ * it must be copied.
+ */
+public interface FeedWindowSource extends Closeable {
+
+    /** Returns the next line aligned window from its position to its limit, or null at the end of the feed. */
+    ByteBuffer nextWindow() throws IOException;
+
+    /** Offset where the next window starts, counted in bytes of the uncompressed feed. */
+    long position();
+
+    /** Continues the feed at the offset, which must be the start of a line. Only valid before the first window. */
+    void skipTo(long position) throws IOException;
+
+}
@@ -0,0 +1,90 @@
+package hu.tomlincoln.catalogsync.feed;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Reads a feed file through memory mapped windows. Every window ends on a line boundary, so it can be handed to a
+ * {@link FeedTokenizer} as is. A line longer than the window makes the window grow until the line fits.
+ */
+public final class MappedFeedReader implements FeedWindowSource {
+
+    public static final int DEFAULT_WINDOW_SIZE = 32 * 1024 * 1024;
+
+    private final FileChannel channel;
+    private final long size;
+    private final int windowSize;
+    private long position;
+
+    private MappedFeedReader(FileChannel channel, int windowSize) throws IOException {
+        this.channel = channel;
+        this.size = channel.size();
+        this.windowSize = windowSize;
+    }
+
+    public static MappedFeedReader open(Path path) throws IOException {
+        return open(path, DEFAULT_WINDOW_SIZE);
+    }
+
+    public static MappedFeedReader open(Path path, int windowSize) throws IOException {
+        return new MappedFeedReader(FileChannel.open(path, StandardOpenOption.READ), windowSize);
+    }
+
+    @Override
+    public ByteBuffer nextWindow() throws IOException {
+        if (position >= size) {
+            return null;
+        }
+        long length = Math.min(windowSize, size - position);
+        while (true) {
+            MappedByteBuffer window = channel.map(FileChannel.MapMode.READ_ONLY, position, length);
+            int end = position + length == size ? (int) length : lastLineEnd(window, (int) length);
+            if (end > 0) {
+                window.limit(end);
+                position += end;
+                return window;
+            }
+            if (length >= Integer.MAX_VALUE / 2) {
+                throw new IOException("Feed line starting at byte " + position + " is too long");
+            }
+            length = Math.min(length * 2, size - position);
+        }
+    }
+
+    @Override
+    public long position() {
+        return position;
+    }
+
+    @Override
+    public void skipTo(long position) throws IOException {
+        if (position > size) {
+            throw new IOException("Feed has no byte " + position + ", it is only " + size + " bytes long");
+        }
+        this.position = position;
+    }
+
+    public long size() {
+        return size;
+    }
+
+    static int lastLineEnd(ByteBuffer window, int length) {
+        for (int i = length - 1; i >= 0; i--) {
+            byte b = window.get(i);
+            // A trailing \r may be the first half of a \r\n split by the window, so it only counts if not last
+            if (b == '\n' || (b == '\r' && i < length - 1)) {
+                return i + 1;
+            }
+        }
+        return 0;
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+}
@@ -0,0 +1,88 @@
+package hu.tomlincoln.catalogsync.feed;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+/**
+ * Reads a feed from a stream, like an HTTP request body, into line aligned windows. One buffer is reused for every
+ * window, the unfinished line at its end is moved to the front before reading on. A line longer than the buffer
+ * makes the buffer grow until the line fits.
+ */
+public final class StreamFeedReader implements FeedWindowSource {
+
+    private final InputStream inputStream;
+    private byte[] buffer;
+    private int filled;
+    private int consumed;
+    // Offset of the first byte in the buffer
+    private long bufferStart;
+    private boolean endOfStream;
+
+    public StreamFeedReader(InputStream inputStream, int windowSize) {
+        this.inputStream = inputStream;
+        this.buffer = new byte[windowSize];
+    }
+
+    @Override
+    public ByteBuffer nextWindow() throws IOException {
+        System.arraycopy(buffer, consumed, buffer, 0, filled - consumed);
+        bufferStart += consumed;
+        filled -= consumed;
+        consumed = 0;
+        while (true) {
+            fill();
+            if (filled == 0) {
+                return null;
+            }
+            int end = endOfStream ? filled : MappedFeedReader.lastLineEnd(ByteBuffer.wrap(buffer), filled);
+            if (end > 0) {
+                consumed = end;
+                return ByteBuffer.wrap(buffer, 0, end);
+            }
+            if (buffer.length >= Integer.MAX_VALUE / 2) {
+                throw new IOException("Feed line is too long");
+            }
+            buffer = Arrays.copyOf(buffer, buffer.length * 2);
+        }
+    }
+
+    @Override
+    public long position() {
+        return bufferStart + consumed;
+    }
+
+    /** Reads and drops everything before the offset, a stream can not be positioned otherwise. */
+    @Override
+    public void skipTo(long position) throws IOException {
+        while (bufferStart < position) {
+            long skipped = inputStream.skip(position - bufferStart);
+            if (skipped == 0) {
+                // Skipping may stop short for no reason, reading tells whether the stream ended
+                if (inputStream.read() < 0) {
+                    throw new IOException("Feed has no byte " + position + ", it is only " + bufferStart
+                            + " bytes long");
+                }
+                skipped = 1;
+            }
+            bufferStart += skipped;
+        }
+    }
+
+    private void fill() throws IOException {
+        while (!endOfStream && filled < buffer.length) {
+            int read = inputStream.read(buffer, filled, buffer.length - filled);
+            if (read < 0) {
+                endOfStream = true;
+            } else {
+                filled += read;
+            }
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        inputStream.close();
+    }
+}
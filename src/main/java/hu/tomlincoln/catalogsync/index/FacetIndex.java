@@ -0,0 +1,177 @@
+package hu.tomlincoln.catalogsync.index;
+
+import hu.tomlincoln.catalogsync.domain.ProductFacet;
+import hu.tomlincoln.catalogsync.dto.FacetResultDTO;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Inverted index from facet values to products. Every product id gets a dense ordinal, and each facet value maps to
+ * the posting list of the ordinals having it. Ordinals of deleted products are reused by the next new product.
+ */
+public class FacetIndex {
+
+    private static final ProductFacet[] FACETS = ProductFacet.values();
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private final Map<String, Integer> ordinalsById = new HashMap<>();
+    private final List<String> idsByOrdinal = new ArrayList<>();
+    private final List<String[]> valuesByOrdinal = new ArrayList<>();
+    private final BitSet live = new BitSet();
+    private final BitSet free = new BitSet();
+    private final Map<ProductFacet, Map<String, PostingList>> postings = new EnumMap<>(ProductFacet.class);
+
+    public FacetIndex() {
+        for (ProductFacet facet : FACETS) {
+            postings.put(facet, new HashMap<>());
+        }
+    }
+
+    /** Adds or replaces a product, the values are indexed by {@link ProductFacet#ordinal()} and may be null. */
+    public void put(String id, String[] values) {
+        lock.writeLock().lock();
+        try {
+            Integer ordinal = ordinalsById.get(id);
+            if (ordinal != null) {
+                removePostings(ordinal);
+            } else {
+                ordinal = allocate(id);
+            }
+            valuesByOrdinal.set(ordinal, values);
+            for (ProductFacet facet : FACETS) {
+                String value = values[facet.ordinal()];
+                if (value != null) {
+                    postings.get(facet).computeIfAbsent(value, v -> new PostingList()).add(ordinal);
+                }
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void remove(String id) {
+        lock.writeLock().lock();
+        try {
+            Integer ordinal = ordinalsById.remove(id);
+            if (ordinal != null) {
+                removePostings(ordinal);
+                idsByOrdinal.set(ordinal, null);
+                valuesByOrdinal.set(ordinal, null);
+                live.clear(ordinal);
+                free.set(ordinal);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /** Removes and then puts products in one go, so no query sees only a part of the changes. */
+    public void update(Collection<String> removedIds, Map<String, String[]> valuesById) {
+        lock.writeLock().lock();
+        try {
+            removedIds.forEach(this::remove);
+            valuesById.forEach(this::put);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return ordinalsById.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Finds the products matching every given facet, where a facet matches if the product has any of its values.
+     * Facets without values are not restricted. Next to the first {@code limit} ids, the number of matching
+     * products is counted for every value of every facet.
+     */
+    public FacetResultDTO query(Map<ProductFacet, ? extends Collection<String>> filters, int limit) {
+        lock.readLock().lock();
+        try {
+            BitSet matching = (BitSet) live.clone();
+            for (Map.Entry<ProductFacet, ? extends Collection<String>> filter : filters.entrySet()) {
+                if (filter.getValue() == null || filter.getValue().isEmpty()) {
+                    continue;
+                }
+                BitSet anyOf = new BitSet();
+                for (String value : filter.getValue()) {
+                    PostingList postingList = postings.get(filter.getKey()).get(value);
+                    if (postingList != null) {
+                        postingList.orInto(anyOf);
+                    }
+                }
+                matching.and(anyOf);
+            }
+
+            List<String> ids = new ArrayList<>(Math.min(limit, matching.cardinality()));
+            for (int ordinal = matching.nextSetBit(0); ordinal >= 0 && ids.size() < limit;
+                 ordinal = matching.nextSetBit(ordinal + 1)) {
+                ids.add(idsByOrdinal.get(ordinal));
+            }
+            Map<String, Map<String, Integer>> counts = new LinkedHashMap<>();
+            for (ProductFacet facet : FACETS) {
+                Map<String, Integer> facetCounts = new HashMap<>();
+                for (Map.Entry<String, PostingList> entry : postings.get(facet).entrySet()) {
+                    int count = entry.getValue().countIn(matching);
+                    if (count > 0) {
+                        facetCounts.put(entry.getKey(), count);
+                    }
+                }
+                counts.put(facet.getFieldName(), facetCounts);
+            }
+            return new FacetResultDTO.Builder()
+                    .withTotal(matching.cardinality())
+                    .withIds(ids)
+                    .withCounts(counts)
+                    .build();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private int allocate(String id) {
+        int ordinal = free.nextSetBit(0);
+        if (ordinal >= 0) {
+            free.clear(ordinal);
+            idsByOrdinal.set(ordinal, id);
+        } else {
+            ordinal = idsByOrdinal.size();
+            idsByOrdinal.add(id);
+            valuesByOrdinal.add(null);
+        }
+        ordinalsById.put(id, ordinal);
+        live.set(ordinal);
+        return ordinal;
+    }
+
+    private void removePostings(int ordinal) {
+        String[] values = valuesByOrdinal.get(ordinal);
+        for (ProductFacet facet : FACETS) {
+            String value = values[facet.ordinal()];
+            if (value == null) {
+                continue;
+            }
+            Map<String, PostingList> facetPostings = postings.get(facet);
+            PostingList postingList = facetPostings.get(value);
+            postingList.remove(ordinal);
+            if (postingList.size() == 0) {
+                facetPostings.remove(value);
+            }
+        }
+    }
+
+}
@@ -0,0 +1,89 @@
+package hu.tomlincoln.catalogsync.index;
+
+import java.util.Arrays;
+import java.util.BitSet;
+
+/**
+ * The ordinals of the products having one facet value. Rare values are kept as a sorted int array, and a list
+ * switches to a bitmap once the array would take more memory than the bitmap does.
+ */
+final class PostingList {
+
+    private int[] ordinals = new int[4];
+    private int size;
+    private BitSet bits;
+
+    void add(int ordinal) {
+        if (bits != null) {
+            if (!bits.get(ordinal)) {
+                bits.set(ordinal);
+                size++;
+            }
+            return;
+        }
+        int index = Arrays.binarySearch(ordinals, 0, size, ordinal);
+        if (index >= 0) {
+            return;
+        }
+        index = -index - 1;
+        if (size == ordinals.length) {
+            ordinals = Arrays.copyOf(ordinals, size * 2);
+        }
+        System.arraycopy(ordinals, index, ordinals, index + 1, size - index);
+        ordinals[index] = ordinal;
+        size++;
+        // An int takes 32 bits, the bitmap one bit per ordinal up to the highest one
+        if ((long) size * Integer.SIZE > ordinals[size - 1] + 1L) {
+            bits = new BitSet(ordinals[size - 1] + 1);
+            for (int i = 0; i < size; i++) {
+                bits.set(ordinals[i]);
+            }
+            ordinals = null;
+        }
+    }
+
+    void remove(int ordinal) {
+        if (bits != null) {
+            if (bits.get(ordinal)) {
+                bits.clear(ordinal);
+                size--;
+            }
+            return;
+        }
+        int index = Arrays.binarySearch(ordinals, 0, size, ordinal);
+        if (index >= 0) {
+            System.arraycopy(ordinals, index + 1, ordinals, index, size - index - 1);
+            size--;
+        }
+    }
+
+    int size() {
+        return size;
+    }
+
+    void orInto(BitSet target) {
+        if (bits != null) {
+            target.or(bits);
+        } else {
+            for (int i = 0; i < size; i++) {
+                target.set(ordinals[i]);
+            }
+        }
+    }
+
+    int countIn(BitSet filter) {
+        if (bits != null) {
+            BitSet intersection = (BitSet) bits.clone();
+            intersection.and(filter);
+            return intersection.cardinality();
+        }
+        int count = 0;
+        for (int i = 0; i < size; i++) {
+            if (filter.get(ordinals[i])) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+}
@@ -0,0 +1,281 @@
+package hu.tomlincoln.catalogsync.index;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteOrder;
+import java.nio.LongBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.channels.OverlappingFileLockException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Open addressing map from the 64-bit hash of a product id to the 64-bit hash of the feed line the product was last
+ * stored from, two primitive longs per entry. Ids with colliding hashes share an entry, which is harmless: the line
+ * hash covers the id, so the line of one id never matches the entry of another, it is just treated as changed.
+ * <p>
+ * The table is either on the heap or in a memory mapped file, see {@link #open(Path, long)}. A file is off the heap, so
+ * the collector never scans or copies it, and a file closed cleanly is restored as it was without reading the database.
+ * <p>
+ * Not thread safe for writes. Lookups may run in parallel as long as nothing is written meanwhile.
+ */
+public final class RowHashIndex implements Closeable {
+
+    private static final int INITIAL_CAPACITY = 1024;
+    // The largest table a single mapping can hold
+    private static final int MAX_CAPACITY = 1 << 26;
+    private static final long EMPTY = 0;
+
+    // The table starts with a header: magic, catalog token, number of entries and whether the file was closed cleanly
+    private static final long MAGIC = 0x5277486173680001L;
+    private static final int MAGIC_SLOT = 0;
+    private static final int TOKEN_SLOT = 1;
+    private static final int SIZE_SLOT = 2;
+    private static final int CLEAN_SLOT = 3;
+    private static final int HEADER = 4;
+
+    private final Path file;
+    private final long token;
+    private FileChannel channel;
+    // Keys and values interleaved after the header
+    private LongBuffer table;
+    private MappedByteBuffer mapping;
+    private int mask;
+    private int size;
+    private boolean restored;
+
+    public RowHashIndex() {
+        this(null, 0);
+        table = allocate(INITIAL_CAPACITY);
+    }
+
+    private RowHashIndex(Path file, long token) {
+        this.file = file;
+        this.token = token;
+    }
+
+    /**
+     * Opens the index kept in the file, creating the file if needed. The entries are restored if the file was closed
+     * cleanly with the same catalog token, otherwise the index starts empty. The file stays locked until closed, so
+     * it can not be opened by another index meanwhile, not even in another process.
+     */
+    public static RowHashIndex open(Path file, long token) throws IOException {
+        RowHashIndex index = new RowHashIndex(file, token);
+        index.channel = lock(file);
+        try {
+            index.restore();
+        } catch (IOException | RuntimeException e) {
+            index.channel.close();
+            throw e;
+        }
+        return index;
+    }
+
+    /** Whether the entries were restored from the file, instead of starting empty. */
+    public boolean isRestored() {
+        return restored;
+    }
+
+    /** Whether the id was last stored from a line with this hash. */
+    public boolean matches(long idHash, long lineHash) {
+        long key = key(idHash);
+        for (int slot = slot(key); table.get(keyAt(slot)) != EMPTY; slot = (slot + 1) & mask) {
+            if (table.get(keyAt(slot)) == key) {
+                return table.get(keyAt(slot) + 1) == lineHash;
+            }
+        }
+        return false;
+    }
+
+    public boolean contains(long idHash) {
+        long key = key(idHash);
+        for (int slot = slot(key); table.get(keyAt(slot)) != EMPTY; slot = (slot + 1) & mask) {
+            if (table.get(keyAt(slot)) == key) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    public void put(long idHash, long lineHash) {
+        long key = key(idHash);
+        int slot = slot(key);
+        while (table.get(keyAt(slot)) != EMPTY && table.get(keyAt(slot)) != key) {
+            slot = (slot + 1) & mask;
+        }
+        table.put(keyAt(slot) + 1, lineHash);
+        if (table.get(keyAt(slot)) == EMPTY) {
+            table.put(keyAt(slot), key);
+            // Kept at most three quarters full, so probe sequences stay short
+            if (++size * 4L > (mask + 1) * 3L) {
+                rehash((mask + 1) * 2);
+            }
+        }
+    }
+
+    public void remove(long idHash) {
+        long key = key(idHash);
+        int slot = slot(key);
+        while (table.get(keyAt(slot)) != key) {
+            if (table.get(keyAt(slot)) == EMPTY) {
+                return;
+            }
+            slot = (slot + 1) & mask;
+        }
+        // Backward shift deletion, every following key that may not be reachable over the hole is moved into it
+        int hole = slot;
+        for (int next = (hole + 1) & mask; table.get(keyAt(next)) != EMPTY; next = (next + 1) & mask) {
+            int home = slot(table.get(keyAt(next)));
+            if (((next - home) & mask) >= ((next - hole) & mask)) {
+                table.put(keyAt(hole), table.get(keyAt(next)));
+                table.put(keyAt(hole) + 1, table.get(keyAt(next) + 1));
+                hole = next;
+            }
+        }
+        table.put(keyAt(hole), EMPTY);
+        table.put(keyAt(hole) + 1, 0);
+        size--;
+    }
+
+    public void clear() {
+        table = allocate(INITIAL_CAPACITY);
+        size = 0;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    /** Writes a file back to disk and marks it closed cleanly, so it can be restored. Nothing to do on the heap. */
+    @Override
+    public void close() throws IOException {
+        if (channel == null || !channel.isOpen()) {
+            return;
+        }
+        try {
+            table.put(SIZE_SLOT, size);
+            mapping.force();
+            // Only set once every entry is on disk, a crash before leaves a file that is never restored
+            table.put(CLEAN_SLOT, 1);
+            mapping.force();
+        } finally {
+            channel.close();
+        }
+    }
+
+    private void restore() throws IOException {
+        long longs = channel.size() / Long.BYTES;
+        long capacity = (longs - HEADER) / 2;
+        if (longs == HEADER + capacity * 2 && capacity >= INITIAL_CAPACITY && capacity <= MAX_CAPACITY
+                && Long.bitCount(capacity) == 1) {
+            LongBuffer existing = map(channel, (int) capacity);
+            if (existing.get(MAGIC_SLOT) == MAGIC && existing.get(TOKEN_SLOT) == token
+                    && existing.get(CLEAN_SLOT) == 1) {
+                table = existing;
+                size = (int) existing.get(SIZE_SLOT);
+                restored = true;
+            }
+        }
+        if (!restored) {
+            table = allocate(INITIAL_CAPACITY);
+        }
+        // Until closed the file may fall behind the catalog, e.g. if the process dies
+        table.put(CLEAN_SLOT, 0);
+        mapping.force();
+    }
+
+    private void rehash(int capacity) {
+        if (capacity > MAX_CAPACITY) {
+            throw new IllegalStateException("The row hash index can not hold more than " + size + " entries");
+        }
+        LongBuffer old = table;
+        int oldCapacity = mask + 1;
+        table = allocate(capacity);
+        for (int i = 0; i < oldCapacity; i++) {
+            long key = old.get(HEADER + i * 2);
+            if (key != EMPTY) {
+                int slot = slot(key);
+                while (table.get(keyAt(slot)) != EMPTY) {
+                    slot = (slot + 1) & mask;
+                }
+                table.put(keyAt(slot), key);
+                table.put(keyAt(slot) + 1, old.get(HEADER + i * 2 + 1));
+            }
+        }
+    }
+
+    private LongBuffer allocate(int capacity) {
+        if (file == null) {
+            mask = capacity - 1;
+            return LongBuffer.wrap(new long[HEADER + capacity * 2]);
+        }
+        try {
+            // Built in a new file which then replaces the old one, the old mapping stays readable until then
+            Path next = file.resolveSibling(file.getFileName() + ".tmp");
+            Files.deleteIfExists(next);
+            FileChannel nextChannel = lock(next);
+            MappedByteBuffer oldMapping = mapping;
+            int oldMask = mask;
+            LongBuffer allocated;
+            try {
+                allocated = map(nextChannel, capacity);
+                allocated.put(MAGIC_SLOT, MAGIC);
+                allocated.put(TOKEN_SLOT, token);
+                Files.move(next, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } catch (IOException | RuntimeException e) {
+                mapping = oldMapping;
+                mask = oldMask;
+                nextChannel.close();
+                throw e;
+            }
+            channel.close();
+            channel = nextChannel;
+            return allocated;
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not grow the row hash index in " + file, e);
+        }
+    }
+
+    private LongBuffer map(FileChannel mappedChannel, int capacity) throws IOException {
+        mapping = mappedChannel.map(FileChannel.MapMode.READ_WRITE, 0, (HEADER + capacity * 2L) * Long.BYTES);
+        // A file written with another byte order does not match the magic, so it is never restored
+        mapping.order(ByteOrder.nativeOrder());
+        mask = capacity - 1;
+        return mapping.asLongBuffer();
+    }
+
+    private static FileChannel lock(Path file) throws IOException {
+        FileChannel lockedChannel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE);
+        FileLock lock;
+        try {
+            lock = lockedChannel.tryLock();
+        } catch (OverlappingFileLockException e) {
+            lock = null;
+        }
+        if (lock == null) {
+            lockedChannel.close();
+            throw new IOException(file + " is used by another row hash index");
+        }
+        return lockedChannel;
+    }
+
+    private static long key(long idHash) {
+        // Zero marks an empty slot
+        return idHash == EMPTY ? 1 : idHash;
+    }
+
+    private int slot(long key) {
+        // The id hashes are already mixed, their low bits are as good as any
+        return (int) key & mask;
+    }
+
+    private static int keyAt(int slot) {
+        return HEADER + slot * 2;
+    }
+}
@@ -0,0 +1,40 @@
+package hu.tomlincoln.catalogsync.index;
+
+import org.springframework.web.util.HtmlUtils;
+
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+
+/**
+ * Text preparation for the full-text index. Accents are folded by the index tokenizer itself, this only takes care
+ * of the markup the feed texts carry.
+ */
+public final class SearchText {
+
+    private static final Pattern TAG = Pattern.compile("<[^>]*>");
+    private static final Pattern NON_WORD = Pattern.compile("[^\\p{L}\\p{N}]+");
+
+    private SearchText() {
+    }
+
+    /** Drops HTML tags and decodes entities like {@code &aacute;} or {@code &#337;} to the characters they stand for. */
+    public static String normalize(String text) {
+        if (text == null || text.isEmpty()) {
+            return "";
+        }
+        String withoutTags = text.indexOf('<') < 0 ? text : TAG.matcher(text).replaceAll(" ");
+        return withoutTags.indexOf('&') < 0 ? withoutTags : HtmlUtils.htmlUnescape(withoutTags);
+    }
+
+    /**
+     * Turns free text into an FTS5 query matching documents that contain every word. Each word is quoted, so
+     * operators and special characters in the input are never interpreted. Returns an empty string for no words.
+     */
+    public static String toMatchQuery(String text) {
+        return NON_WORD.splitAsStream(normalize(text))
+                .filter(word -> !word.isEmpty())
+                .map(word -> '"' + word + '"')
+                .collect(Collectors.joining(" "));
+    }
+
+}
@@ -0,0 +1,48 @@
+package hu.tomlincoln.catalogsync.repository;
+
+import hu.tomlincoln.catalogsync.domain.CatalogState;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.security.SecureRandom;
+import java.util.List;
+
+@Repository
+public class CatalogStateRepository {
+
+    private final JdbcTemplate jdbcTemplate;
+    private final SecureRandom random = new SecureRandom();
+
+    public CatalogStateRepository(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    /** The token of the catalog, created with the first call after the schema was created. */
+    public long getToken() {
+        List<Long> tokens = jdbcTemplate.queryForList("SELECT token FROM catalog_state WHERE id = ?", Long.class,
+                CatalogState.ID);
+        return tokens.isEmpty() ? renewToken() : tokens.get(0);
+    }
+
+    /** Replaces the token, so nothing kept with the old one is trusted any more. */
+    public long renewToken() {
+        long token = random.nextLong();
+        jdbcTemplate.update("INSERT INTO catalog_state (id, token, published_version) VALUES (?, ?, 0) "
+                + "ON CONFLICT(id) DO UPDATE SET token = excluded.token", CatalogState.ID, token);
+        return token;
+    }
+
+    /** The version readers see, zero if nothing was published since the schema was created. */
+    public long getPublishedVersion() {
+        List<Long> versions = jdbcTemplate.queryForList("SELECT published_version FROM catalog_state WHERE id = ?",
+                Long.class, CatalogState.ID);
+        return versions.isEmpty() ? 0 : versions.get(0);
+    }
+
+    public void setPublishedVersion(long version) {
+        jdbcTemplate.update("INSERT INTO catalog_state (id, token, published_version) VALUES (?, ?, ?) "
+                        + "ON CONFLICT(id) DO UPDATE SET published_version = excluded.published_version",
+                CatalogState.ID, random.nextLong(), version);
+    }
+
+}
@@ -0,0 +1,50 @@
+package hu.tomlincoln.catalogsync.repository;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import javax.annotation.PostConstruct;
+import java.util.List;
+
+/**
+ * Holds the ids of the feed being synchronized, so existence and deletion checks are joins against the product
+ * table instead of IN lists with one bind parameter per id.
+ */
+@Repository
+public class FeedStagingRepository {
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public FeedStagingRepository(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    @PostConstruct
+    public void createTable() {
+        // A regular table, since SQLite temporary tables are only visible to the pooled connection that created them
+        jdbcTemplate.execute("CREATE TABLE IF NOT EXISTS feed_staging (id VARCHAR(50) NOT NULL PRIMARY KEY, chunk INTEGER NOT NULL)");
+        jdbcTemplate.execute("CREATE INDEX IF NOT EXISTS feed_staging_chunk ON feed_staging (chunk)");
+    }
+
+    public void clear() {
+        jdbcTemplate.update("DELETE FROM feed_staging");
+    }
+
+    /**
+     * Stages the ids of a chunk. For every id the result is 1 if it got staged and 0 if it was already staged, so
+     * the caller can keep the first occurrence of an id.
+     */
+    @Transactional
+    public int[] stage(List<String> ids, int chunk) {
+        if (ids.isEmpty()) {
+            return new int[0];
+        }
+        return jdbcTemplate.batchUpdate("INSERT OR IGNORE INTO feed_staging (id, chunk) VALUES (?, ?)", ids,
+                ids.size(), (ps, id) -> {
+                    ps.setString(1, id);
+                    ps.setInt(2, chunk);
+                })[0];
+    }
+
+}
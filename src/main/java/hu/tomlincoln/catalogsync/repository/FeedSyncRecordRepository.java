@@ -0,0 +1,105 @@
+package hu.tomlincoln.catalogsync.repository;
+
+import hu.tomlincoln.catalogsync.dto.InvalidProductDTO;
+import hu.tomlincoln.catalogsync.dto.ReportDTO;
+import hu.tomlincoln.catalogsync.feed.FeedFingerprint;
+import org.springframework.context.annotation.DependsOn;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import javax.annotation.PostConstruct;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Remembers the feed the catalog was last synchronized from, with its fingerprint and what its synchronization
+ * reported. As long as nothing else was synchronized since, the same feed would change nothing, so its report can
+ * be given without reading the feed again.
+ */
+@Repository
+@DependsOn("entityManagerFactory")
+public class FeedSyncRecordRepository {
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public FeedSyncRecordRepository(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    /**
+     * The records live with the catalog state: a new schema has no catalog yet, so a record must not outlive the one
+     * it describes. Otherwise they are kept over restarts.
+     */
+    @PostConstruct
+    public void createTables() {
+        if (jdbcTemplate.queryForList("SELECT published_version FROM catalog_state", Long.class).isEmpty()) {
+            jdbcTemplate.execute("DROP TABLE IF EXISTS feed_sync_invalid_product");
+            jdbcTemplate.execute("DROP TABLE IF EXISTS feed_sync_record");
+        }
+        jdbcTemplate.execute("CREATE TABLE IF NOT EXISTS feed_sync_record (source VARCHAR(4096) NOT NULL PRIMARY KEY, "
+                + "size INTEGER NOT NULL, modified_at INTEGER NOT NULL, content_hash INTEGER NOT NULL, "
+                + "product_count INTEGER NOT NULL, skipped INTEGER NOT NULL)");
+        jdbcTemplate.execute("CREATE TABLE IF NOT EXISTS feed_sync_invalid_product (source VARCHAR(4096) NOT NULL, "
+                + "position INTEGER NOT NULL, product_string TEXT, error_message TEXT, "
+                + "PRIMARY KEY (source, position))");
+    }
+
+    /** Whether the feed was the last one synchronized, with this size and modification time. */
+    public boolean isRecorded(String source, long size, long modifiedAt) {
+        return !jdbcTemplate.queryForList("SELECT 1 FROM feed_sync_record WHERE source = ? AND size = ? "
+                + "AND modified_at = ?", Integer.class, source, size, modifiedAt).isEmpty();
+    }
+
+    /**
+     * Gives the report of synchronizing the feed again, if it was the last one synchronized and its fingerprint did
+     * not change: every product is unchanged, and the same rows are skipped as invalid.
+     */
+    public Optional<ReportDTO> findUnchangedReport(String source, FeedFingerprint fingerprint) {
+        List<long[]> records = jdbcTemplate.query("SELECT product_count, skipped FROM feed_sync_record "
+                        + "WHERE source = ? AND size = ? AND modified_at = ? AND content_hash = ?",
+                (rs, rowNum) -> new long[]{rs.getLong(1), rs.getLong(2)},
+                source, fingerprint.getSize(), fingerprint.getModifiedAt(), fingerprint.getContentHash());
+        if (records.isEmpty()) {
+            return Optional.empty();
+        }
+        List<InvalidProductDTO> invalidProducts = jdbcTemplate.query("SELECT product_string, error_message "
+                        + "FROM feed_sync_invalid_product WHERE source = ? ORDER BY position",
+                (rs, rowNum) -> new InvalidProductDTO.Builder()
+                        .withProductString(new String[]{rs.getString(1)})
+                        .withErrorMessage(rs.getString(2))
+                        .build(),
+                source);
+        return Optional.of(new ReportDTO.Builder()
+                .withAdded(0)
+                .withUpdated(0)
+                .withNotChanged(records.get(0)[0])
+                .withDeleted(0)
+                .withSkipped(records.get(0)[1])
+                .withInvalidProducts(invalidProducts)
+                .build());
+    }
+
+    /** Forgets the last feed, called before the catalog gets changed. */
+    @Transactional
+    public void clear() {
+        jdbcTemplate.update("DELETE FROM feed_sync_invalid_product");
+        jdbcTemplate.update("DELETE FROM feed_sync_record");
+    }
+
+    @Transactional
+    public void save(String source, FeedFingerprint fingerprint, ReportDTO report) {
+        clear();
+        jdbcTemplate.update("INSERT INTO feed_sync_record (source, size, modified_at, content_hash, product_count, "
+                        + "skipped) VALUES (?, ?, ?, ?, ?, ?)",
+                source, fingerprint.getSize(), fingerprint.getModifiedAt(), fingerprint.getContentHash(),
+                report.getAdded() + report.getUpdated() + report.getNotChanged(), report.getSkipped());
+        List<InvalidProductDTO> invalidProducts = report.getInvalidProducts();
+        for (int i = 0; i < invalidProducts.size(); i++) {
+            jdbcTemplate.update("INSERT INTO feed_sync_invalid_product (source, position, product_string, "
+                            + "error_message) VALUES (?, ?, ?, ?)",
+                    source, i, invalidProducts.get(i).getProductString(), invalidProducts.get(i).getErrorMessage());
+        }
+    }
+
+}
@@ -0,0 +1,194 @@
+package hu.tomlincoln.catalogsync.repository;
+
+import hu.tomlincoln.catalogsync.config.SyncProperties;
+import hu.tomlincoln.catalogsync.domain.Price;
+import hu.tomlincoln.catalogsync.domain.Product;
+import org.springframework.context.annotation.DependsOn;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.ParameterizedPreparedStatementSetter;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.annotation.PostConstruct;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+
+/**
+ * Writes products with batched prepared statements instead of merging them one by one through JPA, so there is no
+ * SELECT per entity and nothing is kept in the persistence context.
+ * <p>
+ * Products are written in the draft version, the one after the published version. Content of an earlier version is
+ * copied to the product history before it is overwritten or deleted, so the published versions stay readable while
+ * the draft is written.
+ */
+@Repository
+@DependsOn("entityManagerFactory")
+public class ProductBulkWriter {
+
+    /** Every column of a product, in the same order in the product and the product history table. */
+    public static final String COLUMNS = "id, title, description, availability, condition, price_value, "
+            + "price_currency, sale_price_value, sale_price_currency, brand, link, image_link, age_group, "
+            + "google_product_category, content_hash, row_hash, created_at, version_from";
+
+    /**
+     * The products of the catalog version given as the version parameter. A row is live until it is overwritten or
+     * deleted, and historic from the version it was written in until the one it was replaced in.
+     */
+    public static final String PRODUCTS_IN_VERSION = "SELECT " + COLUMNS + " FROM product "
+            + "WHERE version_from <= :version "
+            + "UNION ALL SELECT " + COLUMNS + " FROM product_history "
+            + "WHERE version_from <= :version AND version_to > :version";
+
+    private static final String UPSERT = "INSERT INTO product (" + COLUMNS + ") "
+            + "VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?) "
+            + "ON CONFLICT(id) DO UPDATE SET title = excluded.title, description = excluded.description, "
+            + "availability = excluded.availability, condition = excluded.condition, "
+            + "price_value = excluded.price_value, price_currency = excluded.price_currency, "
+            + "sale_price_value = excluded.sale_price_value, sale_price_currency = excluded.sale_price_currency, "
+            + "brand = excluded.brand, link = excluded.link, image_link = excluded.image_link, "
+            + "age_group = excluded.age_group, google_product_category = excluded.google_product_category, "
+            + "content_hash = excluded.content_hash, row_hash = excluded.row_hash, "
+            + "version_from = excluded.version_from";
+    // Content already written in the draft is not part of any published version, so it is not kept. The rowid it had
+    // tells the search index which entry to drop once the draft is published.
+    private static final String ARCHIVE = "INSERT INTO product_history (" + COLUMNS + ", version_to, product_rowid) "
+            + "SELECT " + COLUMNS + ", ?, rowid FROM product WHERE id = ? AND version_from < ?";
+    // Puts back what the draft replaced, under its old rowid, so the search index of the published version still fits
+    private static final String RESTORE = "INSERT INTO product (rowid, " + COLUMNS + ") "
+            + "SELECT product_rowid, " + COLUMNS + " FROM product_history WHERE version_to = ?";
+    private static final String UPDATE_ROW_HASH = "UPDATE product SET row_hash = ? WHERE id = ?";
+    private static final String DELETE = "DELETE FROM product WHERE id = ?";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final SyncProperties syncProperties;
+
+    public ProductBulkWriter(JdbcTemplate jdbcTemplate, TransactionTemplate transactionTemplate,
+                             SyncProperties syncProperties) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = transactionTemplate;
+        this.syncProperties = syncProperties;
+    }
+
+    /**
+     * The history lives with the catalog state: a new schema has no published version, so nothing of an old history
+     * belongs to it.
+     */
+    @PostConstruct
+    public void createHistory() {
+        List<Long> published = jdbcTemplate.queryForList("SELECT published_version FROM catalog_state", Long.class);
+        if (published.isEmpty()) {
+            jdbcTemplate.execute("DROP TABLE IF EXISTS product_history");
+        }
+        // Copies the columns of the product table, so they always match
+        jdbcTemplate.execute("CREATE TABLE IF NOT EXISTS product_history AS SELECT " + COLUMNS
+                + ", version_from AS version_to, rowid AS product_rowid FROM product WHERE 0");
+        jdbcTemplate.execute("CREATE INDEX IF NOT EXISTS product_history_id ON product_history (id, version_from)");
+        jdbcTemplate.execute("CREATE INDEX IF NOT EXISTS product_history_version_to ON product_history (version_to)");
+    }
+
+    /**
+     * Inserts new products and overwrites existing ones in the draft version, the creation time of existing products
+     * is kept.
+     */
+    public void upsertAll(List<Product> products, long version) {
+        Timestamp createdAt = Timestamp.valueOf(LocalDateTime.now());
+        // Created products are archived too, an id the diff took for new may still be stored
+        write(products, part -> {
+            batchUpdate(ARCHIVE, part, (ps, product) -> setArchived(ps, product.getId(), version));
+            batchUpdate(UPSERT, part, (ps, product) -> {
+                ps.setString(1, product.getId());
+                ps.setString(2, product.getTitle());
+                ps.setString(3, product.getDescription());
+                ps.setString(4, product.getAvailability().name());
+                ps.setString(5, product.getCondition().name());
+                setPrice(ps, 6, product.getPrice());
+                setPrice(ps, 8, product.getSalePrice());
+                ps.setString(10, product.getBrand());
+                ps.setString(11, product.getLink());
+                ps.setString(12, product.getImageLink());
+                ps.setString(13, product.getAgeGroup() == null ? null : product.getAgeGroup().name());
+                ps.setString(14, product.getGoogleProductCategory());
+                ps.setLong(15, product.getContentHash());
+                ps.setLong(16, product.getRowHash());
+                ps.setTimestamp(17, createdAt);
+                ps.setLong(18, version);
+            });
+        });
+    }
+
+    /**
+     * Stores the new feed line hashes of products whose content did not change. Not versioned, the line a product
+     * came from is not part of its content.
+     */
+    public void updateRowHashes(Map<String, Long> rowHashes) {
+        write(new ArrayList<>(rowHashes.entrySet()), part -> batchUpdate(UPDATE_ROW_HASH, part, (ps, rowHash) -> {
+            ps.setLong(1, rowHash.getValue());
+            ps.setString(2, rowHash.getKey());
+        }));
+    }
+
+    /** Deletes the products from the draft version. */
+    public void deleteAllById(Collection<String> ids, long version) {
+        write(new ArrayList<>(ids), part -> {
+            batchUpdate(ARCHIVE, part, (ps, id) -> setArchived(ps, id, version));
+            batchUpdate(DELETE, part, (ps, id) -> ps.setString(1, id));
+        });
+    }
+
+    /**
+     * Undoes everything written in the draft version, like a sync that failed after committing some of its chunks.
+     * Returns the number of products the draft had written or replaced.
+     */
+    public int discardDraft(long version) {
+        Integer discarded = transactionTemplate.execute(status -> {
+            int written = jdbcTemplate.update("DELETE FROM product WHERE version_from = ?", version);
+            int replaced = jdbcTemplate.update(RESTORE, version);
+            jdbcTemplate.update("DELETE FROM product_history WHERE version_to = ?", version);
+            return written + replaced;
+        });
+        return discarded == null ? 0 : discarded;
+    }
+
+    /** Drops the history no version from the given one on can see. */
+    public void pruneHistory(long oldestVersion) {
+        jdbcTemplate.update("DELETE FROM product_history WHERE version_to <= ?", oldestVersion);
+    }
+
+    private <T> void write(List<T> items, Consumer<List<T>> writer) {
+        int commitInterval = syncProperties.getCommitInterval();
+        for (int from = 0; from < items.size(); from += commitInterval) {
+            List<T> part = items.subList(from, Math.min(items.size(), from + commitInterval));
+            transactionTemplate.executeWithoutResult(status -> writer.accept(part));
+        }
+    }
+
+    private <T> void batchUpdate(String sql, List<T> items, ParameterizedPreparedStatementSetter<T> setter) {
+        jdbcTemplate.batchUpdate(sql, items, syncProperties.getWriteBatchSize(), setter);
+    }
+
+    private static void setArchived(PreparedStatement ps, String id, long version) throws SQLException {
+        ps.setLong(1, version);
+        ps.setString(2, id);
+        ps.setLong(3, version);
+    }
+
+    private static void setPrice(PreparedStatement ps, int index, Price price) throws SQLException {
+        if (price == null) {
+            ps.setNull(index, Types.NUMERIC);
+            ps.setNull(index + 1, Types.VARCHAR);
+        } else {
+            ps.setBigDecimal(index, price.getValue());
+            ps.setString(index + 1, price.getCurrency().getCurrencyCode());
+        }
+    }
+
+}
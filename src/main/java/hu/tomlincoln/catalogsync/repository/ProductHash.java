@@ -0,0 +1,11 @@
+package hu.tomlincoln.catalogsync.repository;
+
+public interface ProductHash {
+
+    String getId();
+
+    long getContentHash();
+
+    long getRowHash();
+
+}
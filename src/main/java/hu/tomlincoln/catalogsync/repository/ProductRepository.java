@@ -2,19 +2,43 @@ package hu.tomlincoln.catalogsync.repository;
 
 import hu.tomlincoln.catalogsync.domain.Product;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.CrudRepository;
+import org.springframework.transaction.annotation.Transactional;
 
+import javax.persistence.QueryHint;
+import java.util.List;
+import java.util.Optional;
 import java.util.Set;
+import java.util.stream.Stream;
+
+import static org.hibernate.jpa.QueryHints.HINT_FETCH_SIZE;
+import static org.hibernate.jpa.QueryHints.HINT_READONLY;
 
 public interface ProductRepository extends CrudRepository<Product, String> {
 
-    @Query(value = "SELECT p.id FROM Product p WHERE p.id IN :ids")
-    Set<String> getIdsWhereExists(Set<String> ids);
+    /** Every product of a catalog version, the live ones first in the order they are stored. */
+    @Query(value = ProductBulkWriter.PRODUCTS_IN_VERSION, nativeQuery = true)
+    @QueryHints({@QueryHint(name = HINT_FETCH_SIZE, value = "500"), @QueryHint(name = HINT_READONLY, value = "true")})
+    Stream<Product> streamInVersion(long version);
+
+    @Query(value = "SELECT " + ProductBulkWriter.COLUMNS + " FROM product WHERE id = :id AND version_from <= :version "
+            + "UNION ALL SELECT " + ProductBulkWriter.COLUMNS + " FROM product_history "
+            + "WHERE id = :id AND version_from <= :version AND version_to > :version", nativeQuery = true)
+    @Transactional(readOnly = true)
+    Optional<Product> findInVersion(String id, long version);
+
+    @Query(value = "SELECT p.id AS id, p.content_hash AS contentHash, p.row_hash AS rowHash FROM product p "
+            + "JOIN feed_staging s ON s.id = p.id WHERE s.chunk = :chunk", nativeQuery = true)
+    List<ProductHash> getHashesOfStagedChunk(int chunk);
 
-    @Query(value = "SELECT p FROM Product p WHERE p.id IN :ids")
-    Set<Product> getAllWhereExists(Set<String> ids);
+    /** A page of hashes in id order, after the given id. The primary key index serves the order and the range. */
+    @Query(value = "SELECT id, content_hash AS contentHash, row_hash AS rowHash FROM product WHERE id > :after "
+            + "ORDER BY id LIMIT :limit", nativeQuery = true)
+    List<ProductHash> getHashesAfter(String after, int limit);
 
-    @Query(value = "SELECT p.id FROM Product p WHERE p.id NOT IN :ids")
-    Set<String> getIdsWhereNotExists(Set<String> ids);
+    @Query(value = "SELECT p.id FROM product p WHERE NOT EXISTS (SELECT 1 FROM feed_staging s WHERE s.id = p.id)",
+            nativeQuery = true)
+    Set<String> getIdsWhereNotStaged();
 
 }
@@ -0,0 +1,89 @@
+package hu.tomlincoln.catalogsync.repository;
+
+import hu.tomlincoln.catalogsync.dto.SearchHitDTO;
+import hu.tomlincoln.catalogsync.index.SearchText;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import javax.annotation.PostConstruct;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * SQLite FTS5 index over the title and description of the products of the published catalog version. Its rowids are
+ * the rowids the products have in the product table, which an upsert keeps, and which the history keeps for the
+ * content it archived, so a published version changes the index by rowid without looking up previous entries.
+ * <p>
+ * The id and title of a hit are stored in the index as well, so searching never reads the product table, which may
+ * already hold a draft.
+ */
+@Repository
+public class ProductSearchRepository {
+
+    private static final int BATCH_SIZE = 500;
+    // Title matches weigh twice as much as description matches, the stored id and title are not indexed
+    private static final String BM25 = "bm25(product_search, 0.0, 0.0, 2.0, 1.0)";
+    private static final String INSERT = "INSERT OR REPLACE INTO product_search (rowid, id, original_title, title, "
+            + "description) VALUES (?, ?, ?, ?, ?)";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public ProductSearchRepository(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    @PostConstruct
+    public void createTable() {
+        // Recreated on every start, then filled from the published version
+        jdbcTemplate.execute("DROP TABLE IF EXISTS product_search");
+        jdbcTemplate.execute("CREATE VIRTUAL TABLE product_search USING fts5(id UNINDEXED, original_title UNINDEXED, "
+                + "title, description, tokenize = 'unicode61 remove_diacritics 2')");
+    }
+
+    /** Indexes the products of the published version. */
+    @Transactional
+    public void indexAll(long version) {
+        index("SELECT rowid, id, title, description FROM product WHERE version_from <= ? "
+                + "UNION ALL SELECT product_rowid, id, title, description FROM product_history "
+                + "WHERE version_from <= ? AND version_to > ?", version, version, version);
+    }
+
+    /**
+     * Brings the index from the previous version to the given one: the entries of replaced and deleted content go,
+     * then the products written in the version are indexed. A rowid freed and taken again in the version is removed
+     * before it is indexed again.
+     */
+    public void applyVersion(long version) {
+        jdbcTemplate.update("DELETE FROM product_search WHERE rowid IN "
+                + "(SELECT product_rowid FROM product_history WHERE version_to = ?)", version);
+        index("SELECT rowid, id, title, description FROM product WHERE version_from = ?", version);
+    }
+
+    public List<SearchHitDTO> search(String matchQuery, int limit) {
+        return jdbcTemplate.query("SELECT id, original_title, -" + BM25 + " FROM product_search "
+                        + "WHERE product_search MATCH ? ORDER BY " + BM25 + " LIMIT ?",
+                (rs, rowNum) -> new SearchHitDTO.Builder()
+                        .withId(rs.getString(1))
+                        .withTitle(rs.getString(2))
+                        .withScore(rs.getDouble(3))
+                        .build(),
+                matchQuery, limit);
+    }
+
+    private void index(String select, Object... arguments) {
+        List<Object[]> batch = new ArrayList<>(BATCH_SIZE);
+        jdbcTemplate.query(select, rs -> {
+            batch.add(new Object[]{rs.getLong(1), rs.getString(2), rs.getString(3),
+                    SearchText.normalize(rs.getString(3)), SearchText.normalize(rs.getString(4))});
+            if (batch.size() == BATCH_SIZE) {
+                jdbcTemplate.batchUpdate(INSERT, batch);
+                batch.clear();
+            }
+        }, arguments);
+        if (!batch.isEmpty()) {
+            jdbcTemplate.batchUpdate(INSERT, batch);
+        }
+    }
+
+}
@@ -0,0 +1,63 @@
+package hu.tomlincoln.catalogsync.repository;
+
+import hu.tomlincoln.catalogsync.domain.SyncCheckpoint;
+import hu.tomlincoln.catalogsync.feed.FeedFingerprint;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+import java.util.Optional;
+
+@Repository
+public class SyncCheckpointRepository {
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public SyncCheckpointRepository(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    /** Whether a checkpoint of the feed was saved with this size and modification time. */
+    public boolean exists(String source, long size, long modifiedAt) {
+        return !jdbcTemplate.queryForList("SELECT 1 FROM sync_checkpoint WHERE source = ? AND size = ? "
+                + "AND modified_at = ?", Integer.class, source, size, modifiedAt).isEmpty();
+    }
+
+    /** The checkpoint of the feed, if its last synchronization did not finish and the file did not change since. */
+    public Optional<SyncCheckpoint> find(String source, FeedFingerprint fingerprint) {
+        List<SyncCheckpoint> checkpoints = jdbcTemplate.query("SELECT phase, position, written_rows, chunk, added, "
+                        + "updated, deleted, skipped FROM sync_checkpoint "
+                        + "WHERE source = ? AND size = ? AND modified_at = ? AND content_hash = ?",
+                (rs, rowNum) -> {
+                    SyncCheckpoint checkpoint = new SyncCheckpoint(source, fingerprint.getSize(),
+                            fingerprint.getModifiedAt(), fingerprint.getContentHash());
+                    checkpoint.setPhase(SyncCheckpoint.Phase.valueOf(rs.getString(1)));
+                    checkpoint.setPosition(rs.getLong(2));
+                    checkpoint.setWrittenRows(rs.getLong(3));
+                    checkpoint.setChunk(rs.getInt(4));
+                    checkpoint.setAdded(rs.getLong(5));
+                    checkpoint.setUpdated(rs.getLong(6));
+                    checkpoint.setDeleted(rs.getLong(7));
+                    checkpoint.setSkipped(rs.getLong(8));
+                    return checkpoint;
+                },
+                source, fingerprint.getSize(), fingerprint.getModifiedAt(), fingerprint.getContentHash());
+        return checkpoints.stream().findFirst();
+    }
+
+    /** Replaces the checkpoint, part of the transaction of the chunk it was reached with. */
+    public void save(SyncCheckpoint checkpoint) {
+        jdbcTemplate.update("INSERT OR REPLACE INTO sync_checkpoint (id, source, size, modified_at, content_hash, "
+                        + "phase, position, written_rows, chunk, added, updated, deleted, skipped) "
+                        + "VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)",
+                checkpoint.getId(), checkpoint.getSource(), checkpoint.getSize(), checkpoint.getModifiedAt(),
+                checkpoint.getContentHash(), checkpoint.getPhase().name(), checkpoint.getPosition(),
+                checkpoint.getWrittenRows(), checkpoint.getChunk(), checkpoint.getAdded(), checkpoint.getUpdated(),
+                checkpoint.getDeleted(), checkpoint.getSkipped());
+    }
+
+    public void clear() {
+        jdbcTemplate.update("DELETE FROM sync_checkpoint");
+    }
+
+}
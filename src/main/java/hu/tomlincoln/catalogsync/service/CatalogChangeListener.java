@@ -0,0 +1,17 @@
+package hu.tomlincoln.catalogsync.service;
+
+import hu.tomlincoln.catalogsync.domain.Product;
+
+import java.util.Collection;
+
+/**
+ * Notified by the synchronizer after products are written to or deleted from the database, so read-side caches and
+ * indexes can follow the catalog.
+ */
+public interface CatalogChangeListener {
+
+    void productsUpserted(Collection<Product> products);
+
+    void productsDeleted(Collection<String> ids);
+
+}
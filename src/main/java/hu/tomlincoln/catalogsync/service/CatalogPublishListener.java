@@ -0,0 +1,15 @@
+package hu.tomlincoln.catalogsync.service;
+
+/**
+ * Notified when a catalog version gets published, so read-side indexes change together with the version readers
+ * see instead of following the draft chunk by chunk.
+ */
+public interface CatalogPublishListener {
+
+    /**
+     * Called in the transaction publishing the version, before the history is pruned. The products written in the
+     * version have it as their first version, and the content they replaced or deleted is in the history up to it.
+     */
+    void versionPublished(long version);
+
+}
@@ -0,0 +1,94 @@
+package hu.tomlincoln.catalogsync.service;
+
+import hu.tomlincoln.catalogsync.config.SyncProperties;
+import hu.tomlincoln.catalogsync.dto.CatalogVersionDTO;
+import hu.tomlincoln.catalogsync.repository.CatalogStateRepository;
+import hu.tomlincoln.catalogsync.repository.ProductBulkWriter;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.context.annotation.DependsOn;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.annotation.PostConstruct;
+import java.util.List;
+
+/**
+ * Every synchronization writes a draft version of the catalog, which readers only see once it is published as a
+ * whole. A reader pins the published version when its request starts, so it never sees a sync half applied, and the
+ * last few versions can be read by number until the history they need is pruned.
+ * <p>
+ * The published version is kept in memory as well, so pinning it does not wait for the connection a sync writes on.
+ */
+@Service
+@DependsOn("entityManagerFactory")
+public class CatalogVersionService {
+
+    private static final Logger LOG = LoggerFactory.getLogger(CatalogVersionService.class);
+
+    private final CatalogStateRepository catalogStateRepository;
+    private final ProductBulkWriter productBulkWriter;
+    private final TransactionTemplate transactionTemplate;
+    private final SyncProperties syncProperties;
+    private final List<CatalogPublishListener> catalogPublishListeners;
+    private volatile long published;
+
+    public CatalogVersionService(CatalogStateRepository catalogStateRepository, ProductBulkWriter productBulkWriter,
+                                 TransactionTemplate transactionTemplate, SyncProperties syncProperties,
+                                 List<CatalogPublishListener> catalogPublishListeners) {
+        this.catalogStateRepository = catalogStateRepository;
+        this.productBulkWriter = productBulkWriter;
+        this.transactionTemplate = transactionTemplate;
+        this.syncProperties = syncProperties;
+        this.catalogPublishListeners = catalogPublishListeners;
+    }
+
+    @PostConstruct
+    public void load() {
+        published = catalogStateRepository.getPublishedVersion();
+    }
+
+    public long getPublished() {
+        return published;
+    }
+
+    /** The version changes are written in until it is published. A failed sync leaves it to the next one. */
+    public long getDraft() {
+        return published + 1;
+    }
+
+    /** Whether the version was published and its products can still be read. */
+    public boolean isRetained(long version) {
+        long current = published;
+        return version >= oldest(current) && version <= current;
+    }
+
+    /**
+     * Makes the draft the version readers see, in one transaction with updating the read-side indexes and dropping
+     * the history no one may read.
+     */
+    public void publish(long version) {
+        transactionTemplate.executeWithoutResult(status -> {
+            catalogStateRepository.setPublishedVersion(version);
+            // The history still tells what the version replaced
+            catalogPublishListeners.forEach(listener -> listener.versionPublished(version));
+            productBulkWriter.pruneHistory(oldest(version));
+        });
+        published = version;
+        LOG.debug("Catalog version " + version + " published");
+    }
+
+    public CatalogVersionDTO getVersions() {
+        long current = published;
+        return new CatalogVersionDTO.Builder()
+                .withPublished(current)
+                .withOldest(oldest(current))
+                .build();
+    }
+
+    private long oldest(long version) {
+        // Version zero is the empty catalog, it needs no history
+        return Math.max(0, version - syncProperties.getRetainedVersions() + 1);
+    }
+
+}
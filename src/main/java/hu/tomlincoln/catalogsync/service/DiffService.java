@@ -0,0 +1,246 @@
+package hu.tomlincoln.catalogsync.service;
+
+import hu.tomlincoln.catalogsync.domain.Product;
+import hu.tomlincoln.catalogsync.feed.FeedRow;
+import hu.tomlincoln.catalogsync.feed.FeedSorter;
+import hu.tomlincoln.catalogsync.repository.FeedStagingRepository;
+import hu.tomlincoln.catalogsync.repository.ProductHash;
+import hu.tomlincoln.catalogsync.repository.ProductRepository;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Consumer;
+
+@Service
+public class DiffService {
+
+    // Rows with unchanged lines or new ids are staged apart from their chunk, so the stored hashes are only read for
+    // the rest
+    private static final int UNCHANGED_CHUNK = -1;
+    private static final int NEW_CHUNK = -2;
+
+    private final ProductRepository productRepository;
+    private final FeedStagingRepository feedStagingRepository;
+    private final IdProviderService idProviderService;
+    private final RowHashService rowHashService;
+
+    public DiffService(ProductRepository productRepository, FeedStagingRepository feedStagingRepository,
+                       IdProviderService idProviderService, RowHashService rowHashService) {
+        this.productRepository = productRepository;
+        this.feedStagingRepository = feedStagingRepository;
+        this.idProviderService = idProviderService;
+        this.rowHashService = rowHashService;
+    }
+
+    /** Forgets the ids staged by the previous feed. */
+    public void beginFeed() {
+        feedStagingRepository.clear();
+        rowHashService.load();
+    }
+
+    /** Continues a feed whose earlier chunks are staged already, their ids keep counting as seen. */
+    public void resumeFeed() {
+        rowHashService.load();
+    }
+
+    /**
+     * Classifies validated feed rows as added, updated or not changed. A row whose line is the same as the one its
+     * product was stored from is not changed, and a row whose id is surely not stored is added, both without asking
+     * the database. For the rest only the content hashes of their stored products are fetched, the stored rows
+     * themselves are never loaded.
+     * Ids already staged by an earlier chunk of the same feed are ignored.
+     */
+    public ChangeSet diff(Collection<FeedRow> validatedRows, int chunk) {
+        Map<String, FeedRow> feedIndex = new LinkedHashMap<>(validatedRows.size() * 4 / 3 + 1);
+        for (FeedRow row : validatedRows) {
+            // The first occurrence of an id wins
+            feedIndex.putIfAbsent(row.field(0), row);
+        }
+        // The ids are unique within the chunk by now, so staging them in parts keeps the first occurrence
+        Set<String> unchangedIds = new HashSet<>();
+        List<String> newIds = new ArrayList<>();
+        List<String> ids = new ArrayList<>(feedIndex.size());
+        for (Map.Entry<String, FeedRow> entry : feedIndex.entrySet()) {
+            if (rowHashService.isUnchanged(entry.getValue())) {
+                unchangedIds.add(entry.getKey());
+            } else if (!rowHashService.mayBeStored(entry.getValue())) {
+                newIds.add(entry.getKey());
+            } else {
+                ids.add(entry.getKey());
+            }
+        }
+        Set<String> stagedEarlier = new HashSet<>();
+        stage(new ArrayList<>(unchangedIds), UNCHANGED_CHUNK, stagedEarlier);
+        stage(newIds, NEW_CHUNK, stagedEarlier);
+        Map<String, Long> storedHashes = new HashMap<>(ids.size() * 4 / 3 + 1);
+        if (stage(ids, chunk, stagedEarlier) > 0) {
+            for (ProductHash productHash : productRepository.getHashesOfStagedChunk(chunk)) {
+                storedHashes.put(productHash.getId(), productHash.getContentHash());
+            }
+        }
+
+        ChangeSet changeSet = new ChangeSet();
+        for (Map.Entry<String, FeedRow> entry : feedIndex.entrySet()) {
+            if (stagedEarlier.contains(entry.getKey())) {
+                continue;
+            }
+            Long storedHash = storedHashes.get(entry.getKey());
+            if (unchangedIds.contains(entry.getKey())) {
+                changeSet.notChanged++;
+            } else if (storedHash == null) {
+                changeSet.productsToBeCreated.add(toProduct(entry.getValue()));
+            } else {
+                classify(entry.getValue(), storedHash, changeSet);
+            }
+        }
+        return changeSet;
+    }
+
+    /** Stages the ids, collects the ones staged by an earlier chunk and returns how many got staged now. */
+    private int stage(List<String> ids, int chunk, Set<String> stagedEarlier) {
+        int[] staged = feedStagingRepository.stage(ids, chunk);
+        int count = 0;
+        for (int i = 0; i < staged.length; i++) {
+            if (staged[i] == 0) {
+                stagedEarlier.add(ids.get(i));
+            } else {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    private static Product toProduct(FeedRow row) {
+        Product feedProduct = Product.fromStringArray(row.toArray());
+        feedProduct.setRowHash(row.lineHash());
+        return feedProduct;
+    }
+
+    private static void classify(FeedRow row, long storedContentHash, ChangeSet changeSet) {
+        Product feedProduct = toProduct(row);
+        if (storedContentHash != feedProduct.getContentHash()) {
+            changeSet.productsToBeUpdated.add(feedProduct);
+        } else {
+            // Only the line changed, e.g. its quoting, so the next feed can skip it if it stays like this
+            changeSet.rowHashesToBeRefreshed.put(feedProduct.getId(), row.lineHash());
+            changeSet.notChanged++;
+        }
+    }
+
+    /**
+     * Merge joins feed rows sorted by id with the stored products read in id order, one page at a time. Neither side
+     * has to fit in memory, the decisions are handed over in change sets of at most batch size entries, products to
+     * be deleted included. Writes of the change sets never touch the ids ahead of the cursor, so paging stays valid.
+     */
+    public void diffSorted(FeedSorter sortedFeed, int batchSize, Consumer<ChangeSet> consumer) throws IOException {
+        StoredCursor stored = new StoredCursor(batchSize);
+        ChangeSet changeSet = new ChangeSet();
+        FeedRow row = sortedFeed.next();
+        String feedId = row == null ? null : row.field(0);
+        ProductHash storedHash = stored.next();
+        while (row != null || storedHash != null) {
+            int comparison = row == null ? 1
+                    : storedHash == null ? -1 : FeedSorter.ID_ORDER.compare(feedId, storedHash.getId());
+            if (comparison > 0) {
+                changeSet.productIdsToBeDeleted.add(storedHash.getId());
+                storedHash = stored.next();
+                continue;
+            }
+            if (comparison < 0) {
+                changeSet.productsToBeCreated.add(toProduct(row));
+            } else {
+                if (row.lineHash() == storedHash.getRowHash()) {
+                    changeSet.notChanged++;
+                } else {
+                    classify(row, storedHash.getContentHash(), changeSet);
+                }
+                storedHash = stored.next();
+            }
+            row = sortedFeed.next();
+            feedId = row == null ? null : row.field(0);
+            if (changeSet.size() >= batchSize) {
+                consumer.accept(changeSet);
+                changeSet = new ChangeSet();
+            }
+        }
+        consumer.accept(changeSet);
+    }
+
+    /** Ids of the stored products that are missing from the staged feed. */
+    public Set<String> getIdsToBeDeleted() {
+        return idProviderService.getIdsWhereNotInFeed();
+    }
+
+    public static final class ChangeSet {
+        private final List<Product> productsToBeCreated = new ArrayList<>();
+        private final List<Product> productsToBeUpdated = new ArrayList<>();
+        private final Map<String, Long> rowHashesToBeRefreshed = new HashMap<>();
+        private final List<String> productIdsToBeDeleted = new ArrayList<>();
+        private long notChanged;
+
+        public List<Product> getProductsToBeCreated() {
+            return productsToBeCreated;
+        }
+
+        public List<Product> getProductsToBeUpdated() {
+            return productsToBeUpdated;
+        }
+
+        /** Line hashes of not changed products that came from a different line than before, by id. */
+        public Map<String, Long> getRowHashesToBeRefreshed() {
+            return rowHashesToBeRefreshed;
+        }
+
+        /** Only filled by {@link #diffSorted}, the staged diff finds the deleted ids after the whole feed. */
+        public List<String> getProductIdsToBeDeleted() {
+            return productIdsToBeDeleted;
+        }
+
+        public long getNotChanged() {
+            return notChanged;
+        }
+
+        private int size() {
+            return productsToBeCreated.size() + productsToBeUpdated.size() + rowHashesToBeRefreshed.size()
+                    + productIdsToBeDeleted.size();
+        }
+    }
+
+    /** Reads the stored hashes in id order, a keyset page at a time. */
+    private final class StoredCursor {
+        private final int pageSize;
+        private List<ProductHash> page = List.of();
+        private int position;
+        private String lastId = "";
+        private boolean exhausted;
+
+        private StoredCursor(int pageSize) {
+            this.pageSize = pageSize;
+        }
+
+        private ProductHash next() {
+            if (position == page.size()) {
+                if (exhausted) {
+                    return null;
+                }
+                page = productRepository.getHashesAfter(lastId, pageSize);
+                position = 0;
+                exhausted = page.size() < pageSize;
+                if (page.isEmpty()) {
+                    return null;
+                }
+            }
+            ProductHash productHash = page.get(position++);
+            lastId = productHash.getId();
+            return productHash;
+        }
+    }
+}
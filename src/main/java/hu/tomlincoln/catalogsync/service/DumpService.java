@@ -1,24 +1,58 @@
 package hu.tomlincoln.catalogsync.service;
 
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import hu.tomlincoln.catalogsync.domain.Product;
 import hu.tomlincoln.catalogsync.repository.ProductRepository;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
-import java.util.List;
-import java.util.stream.Collectors;
-import java.util.stream.StreamSupport;
+import javax.persistence.EntityManager;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Iterator;
+import java.util.stream.Stream;
 
 @Service
 public class DumpService {
 
     private final ProductRepository productRepository;
+    private final CatalogVersionService catalogVersionService;
+    private final EntityManager entityManager;
+    private final ObjectMapper objectMapper;
 
-    public DumpService(ProductRepository productRepository) {
+    public DumpService(ProductRepository productRepository, CatalogVersionService catalogVersionService,
+                       EntityManager entityManager, ObjectMapper objectMapper) {
         this.productRepository = productRepository;
+        this.catalogVersionService = catalogVersionService;
+        this.entityManager = entityManager;
+        this.objectMapper = objectMapper;
     }
 
-    public List<Product> dumpAll() {
-        return StreamSupport.stream(productRepository.findAll().spliterator(), false).collect(Collectors.toList());
+    /** Dumps the published catalog version. */
+    @Transactional(readOnly = true)
+    public void dumpAll(OutputStream outputStream) throws IOException {
+        dumpAll(outputStream, catalogVersionService.getPublished());
+    }
+
+    /**
+     * Writes every product of the catalog version as a JSON array while reading them through a database cursor, so
+     * memory use does not depend on the size of the catalog.
+     */
+    @Transactional(readOnly = true)
+    public void dumpAll(OutputStream outputStream, long version) throws IOException {
+        try (Stream<Product> products = productRepository.streamInVersion(version);
+             JsonGenerator generator = objectMapper.getFactory().createGenerator(outputStream)) {
+            generator.writeStartArray();
+            Iterator<Product> iterator = products.iterator();
+            while (iterator.hasNext()) {
+                Product product = iterator.next();
+                generator.writeObject(product);
+                // Written products are dropped from the persistence context, so it does not grow with the catalog
+                entityManager.detach(product);
+            }
+            generator.writeEndArray();
+        }
     }
 
 }
@@ -1,135 +1,64 @@
 package hu.tomlincoln.catalogsync.service;
 
-import hu.tomlincoln.catalogsync.domain.AgeGroup;
-import hu.tomlincoln.catalogsync.domain.Product;
-import hu.tomlincoln.catalogsync.domain.ProductAvailability;
-import hu.tomlincoln.catalogsync.domain.ProductCondition;
 import hu.tomlincoln.catalogsync.dto.InvalidProductDTO;
+import hu.tomlincoln.catalogsync.feed.FeedRow;
+import hu.tomlincoln.catalogsync.feed.FeedRowValidator;
 import org.springframework.stereotype.Service;
 
-import java.math.BigDecimal;
-import java.net.MalformedURLException;
-import java.net.URL;
-import java.util.Arrays;
-import java.util.Currency;
 import java.util.List;
-import java.util.regex.Pattern;
-import java.util.stream.IntStream;
 
 @Service
 public class ErrorCheckerService {
 
-    private static final Pattern CATEGORY_PATTERN = Pattern.compile("^\\d+$|^[^\\d]+$");
+    private static final String[] FIELD_NAMES = {"id", "title", "description", "availability", "condition", "price",
+            "sale_price", "link", "brand", "image_link", "age_group", "google_product_category"};
 
-    public boolean hasError(String[] product, List<InvalidProductDTO> invalidProducts) {
-        String[] cleanedProduct = Product.cleanProductArrayFromParenthesis(product);
-
-        // We need to handle enums since they may have space in them.
-        IntStream.of(3, 4, 10).forEach(i -> cleanedProduct[i] = cleanedProduct[i].replace(" ", "_"));
-
-        // Also handle default values where needed
-        cleanedProduct[4] = !cleanedProduct[4].isEmpty() ? cleanedProduct[4] : "NEW";
-        cleanedProduct[10] = !cleanedProduct[10].isEmpty() ? cleanedProduct[10] : "";
+    // Compiled once, the validator has no per-row state so it is shared between the validating threads
+    private final FeedRowValidator validator = new FeedRowValidator();
 
-        if (cleanedProduct.length != 12) {
-            addToInvalidProducts(invalidProducts, cleanedProduct, null);
-            return true;
-        }
-        if (cleanedProduct[0].length() > 50) {
-            addToInvalidProducts(invalidProducts, cleanedProduct, "id");
-            return true;
-        }
-        if (cleanedProduct[1].length() > 100) {
-            addToInvalidProducts(invalidProducts, cleanedProduct, "title");
-            return true;
-        }
-        if (cleanedProduct[2].length() > 5000) {
-            addToInvalidProducts(invalidProducts, cleanedProduct, "description");
-            return true;
-        }
-        if (Arrays.stream(ProductAvailability.values()).map(ProductAvailability::name).noneMatch(s -> s.equalsIgnoreCase(cleanedProduct[3]))) {
-            addToInvalidProducts(invalidProducts, cleanedProduct, "availability");
-            return true;
-        }
-        if (Arrays.stream(ProductCondition.values()).map(ProductCondition::name).noneMatch(s -> s.equalsIgnoreCase(cleanedProduct[4]))) {
-            addToInvalidProducts(invalidProducts, cleanedProduct, "condition");
-            return true;
-        }
-        if (hasPriceError(5, cleanedProduct)) {
-            addToInvalidProducts(invalidProducts, cleanedProduct, "price");
-            return true;
-        }
-        if (hasPriceError(6, cleanedProduct)) {
-            addToInvalidProducts(invalidProducts, cleanedProduct, "sale_price");
-            return true;
-        }
-        if (hasLinkError(cleanedProduct, 7)) {
-            addToInvalidProducts(invalidProducts, cleanedProduct, "link");
-            return true;
-        }
-        if (cleanedProduct[8].length() > 50) {
-            addToInvalidProducts(invalidProducts, cleanedProduct, "brand");
-            return true;
-        }
-        if (hasLinkError(product, 9)) {
-            addToInvalidProducts(invalidProducts, cleanedProduct, "image_link");
-            return true;
-        }
-        if (Arrays.stream(AgeGroup.values()).map(Enum::name)
-                .noneMatch(s -> s.equalsIgnoreCase("".equals(cleanedProduct[10]) ? "NOT_SPECIFIED" : cleanedProduct[10]))) {
-            addToInvalidProducts(invalidProducts, cleanedProduct, "age_group");
-            return true;
-        }
-        if (!CATEGORY_PATTERN.matcher(cleanedProduct[11]).matches()) {
-            addToInvalidProducts(invalidProducts, cleanedProduct, "google_product_category");
-            return true;
-        }
-        return false;
-    }
-
-    private boolean hasPriceError(int index, String[] product) {
-        try {
-            String[] splitPrice = product[index].split(" ");
-            if (splitPrice.length != 2) {
-                throw new IllegalArgumentException(index == 5 ? "price" : "sale_price" + " split length is not valid");
-            }
-            // Syntax check
-            new BigDecimal(splitPrice[0]);
-            // Syntax check
-            Currency.getInstance(splitPrice[1]);
-        } catch (IllegalArgumentException e) {
-            return true;
-        }
-        return false;
+    public boolean hasError(String[] product, List<InvalidProductDTO> invalidProducts) {
+        return hasError(FeedRow.of(product), invalidProducts);
     }
 
-    private boolean hasLinkError(String[] product, int index) {
-        try {
-            if (!(product[index].startsWith("http") || product[index].startsWith("https"))) {
-                throw new IllegalArgumentException("not a (http or https) link");
-            }
-            // Syntax check
-            new URL(product[index]);
-        } catch (MalformedURLException | IllegalArgumentException e) {
-            return true;
+    public boolean hasError(FeedRow row, List<InvalidProductDTO> invalidProducts) {
+        int result = validator.validate(row);
+        if (result == FeedRowValidator.VALID) {
+            return false;
         }
-        return false;
+        addToInvalidProducts(invalidProducts, row, result == FeedRowValidator.WRONG_FIELD_COUNT ? null : FIELD_NAMES[result]);
+        return true;
     }
 
-    private InvalidProductDTO createInvalidProductInfo(String[] splitProduct, String fieldName) {
+    private InvalidProductDTO createInvalidProductInfo(FeedRow row, String fieldName) {
         String errorMsg = "did not find all parameters (should be 12)";
         if (fieldName != null) {
             errorMsg = fieldName + " field contains unparsable and/or over-sized data";
         }
         return new InvalidProductDTO.Builder()
-                .withProductString(splitProduct)
+                .withProductString(normalizedFields(row))
                 .withErrorMessage(errorMsg)
                 .build();
     }
 
-    private void addToInvalidProducts(List<InvalidProductDTO> invalidProducts, String[] splitProduct, String fieldName) {
+    private String[] normalizedFields(FeedRow row) {
+        String[] cleanedProduct = row.toArray();
+        // We need to handle enums since they may have space in them.
+        for (int i : new int[]{FeedRowValidator.AVAILABILITY, FeedRowValidator.CONDITION, FeedRowValidator.AGE_GROUP}) {
+            if (i < cleanedProduct.length) {
+                cleanedProduct[i] = cleanedProduct[i].replace(" ", "_");
+            }
+        }
+        // Also handle default values where needed
+        if (FeedRowValidator.CONDITION < cleanedProduct.length && cleanedProduct[FeedRowValidator.CONDITION].isEmpty()) {
+            cleanedProduct[FeedRowValidator.CONDITION] = "NEW";
+        }
+        return cleanedProduct;
+    }
+
+    private void addToInvalidProducts(List<InvalidProductDTO> invalidProducts, FeedRow row, String fieldName) {
+        // The row is only decoded for the few invalid rows that make it into the report
         if (invalidProducts.size() < SynchronizerService.MAX_INVALID_REPORTABLE) {
-            invalidProducts.add(createInvalidProductInfo(splitProduct, fieldName));
+            invalidProducts.add(createInvalidProductInfo(row, fieldName));
         }
     }
 
@@ -0,0 +1,85 @@
+package hu.tomlincoln.catalogsync.service;
+
+import hu.tomlincoln.catalogsync.domain.ProductFacet;
+import hu.tomlincoln.catalogsync.dto.FacetResultDTO;
+import hu.tomlincoln.catalogsync.index.FacetIndex;
+import hu.tomlincoln.catalogsync.repository.CatalogStateRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.BiConsumer;
+import java.util.stream.Collectors;
+
+/**
+ * Keeps the facets of the products of the published catalog version in memory. A published version is read inside
+ * the transaction publishing it and applied at once when that commits, so a query never sees a sync half applied.
+ */
+@Service
+public class FacetIndexService implements CatalogPublishListener {
+
+    private static final Logger LOG = LoggerFactory.getLogger(FacetIndexService.class);
+    private static final ProductFacet[] FACETS = ProductFacet.values();
+    private static final String FACET_COLUMNS = "id, "
+            + Arrays.stream(FACETS).map(ProductFacet::getColumnName).collect(Collectors.joining(", "));
+
+    private final JdbcTemplate jdbcTemplate;
+    private final CatalogStateRepository catalogStateRepository;
+    private final FacetIndex facetIndex = new FacetIndex();
+
+    public FacetIndexService(JdbcTemplate jdbcTemplate, CatalogStateRepository catalogStateRepository) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.catalogStateRepository = catalogStateRepository;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void build() {
+        long version = catalogStateRepository.getPublishedVersion();
+        // Only the facet columns are read, the products themselves are never loaded
+        readFacets("SELECT " + FACET_COLUMNS + " FROM product WHERE version_from <= ? "
+                        + "UNION ALL SELECT " + FACET_COLUMNS + " FROM product_history "
+                        + "WHERE version_from <= ? AND version_to > ?",
+                facetIndex::put, version, version, version);
+        LOG.debug("Facet index built with " + facetIndex.size() + " products");
+    }
+
+    public FacetResultDTO query(Map<ProductFacet, ? extends Collection<String>> filters, int limit) {
+        return facetIndex.query(filters, limit);
+    }
+
+    @Override
+    public void versionPublished(long version) {
+        // Replaced content is removed too, its product is put back right after
+        List<String> removedIds = jdbcTemplate.queryForList("SELECT id FROM product_history WHERE version_to = ?",
+                String.class, version);
+        Map<String, String[]> written = new HashMap<>();
+        readFacets("SELECT " + FACET_COLUMNS + " FROM product WHERE version_from = ?", written::put, version);
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                facetIndex.update(removedIds, written);
+            }
+        });
+    }
+
+    private void readFacets(String select, BiConsumer<String, String[]> consumer, Object... arguments) {
+        jdbcTemplate.query(select, rs -> {
+            String[] values = new String[FACETS.length];
+            for (int i = 0; i < FACETS.length; i++) {
+                values[i] = rs.getString(i + 2);
+            }
+            consumer.accept(rs.getString(1), values);
+        }, arguments);
+    }
+
+}
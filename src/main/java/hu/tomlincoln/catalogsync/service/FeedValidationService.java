@@ -0,0 +1,144 @@
+package hu.tomlincoln.catalogsync.service;
+
+import hu.tomlincoln.catalogsync.config.SyncProperties;
+import hu.tomlincoln.catalogsync.dto.InvalidProductDTO;
+import hu.tomlincoln.catalogsync.dto.MaxSizedLinkedList;
+import hu.tomlincoln.catalogsync.feed.FeedRow;
+import hu.tomlincoln.catalogsync.feed.FeedTokenizer;
+import org.springframework.stereotype.Service;
+
+import javax.annotation.PreDestroy;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.function.Predicate;
+
+@Service
+public class FeedValidationService {
+
+    private final ErrorCheckerService errorCheckerService;
+    private final ForkJoinPool pool;
+    private final int segmentSize;
+
+    public FeedValidationService(ErrorCheckerService errorCheckerService, SyncProperties syncProperties) {
+        this.errorCheckerService = errorCheckerService;
+        this.pool = new ForkJoinPool(syncProperties.getParallelism());
+        this.segmentSize = (int) syncProperties.getSegmentSize().toBytes();
+    }
+
+    /**
+     * Tokenizes and validates the lines of a line aligned window in parallel, from the window's position to its
+     * limit. The result keeps file order, for the valid rows as well as for the reported invalid ones.
+     */
+    public ValidationResult validate(ByteBuffer window) {
+        return validate(window, row -> false);
+    }
+
+    /**
+     * Validates like {@link #validate(ByteBuffer)}, except that the rows known to be valid are kept without checking
+     * them. The predicate is called in parallel.
+     */
+    public ValidationResult validate(ByteBuffer window, Predicate<FeedRow> knownValid) {
+        return pool.invoke(new SegmentTask(window, window.position(), window.limit(), knownValid));
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        pool.shutdown();
+    }
+
+    public static final class ValidationResult {
+        private final List<FeedRow> validRows;
+        private final List<InvalidProductDTO> invalidProducts;
+        private long skipped;
+
+        private ValidationResult(List<FeedRow> validRows, List<InvalidProductDTO> invalidProducts) {
+            this.validRows = validRows;
+            this.invalidProducts = invalidProducts;
+        }
+
+        public List<FeedRow> getValidRows() {
+            return validRows;
+        }
+
+        /** The first invalid rows of the window in file order, at most {@link SynchronizerService#MAX_INVALID_REPORTABLE}. */
+        public List<InvalidProductDTO> getInvalidProducts() {
+            return invalidProducts;
+        }
+
+        public long getSkipped() {
+            return skipped;
+        }
+
+        private ValidationResult append(ValidationResult following) {
+            validRows.addAll(following.validRows);
+            for (InvalidProductDTO invalidProduct : following.invalidProducts) {
+                if (invalidProducts.size() >= SynchronizerService.MAX_INVALID_REPORTABLE) {
+                    break;
+                }
+                invalidProducts.add(invalidProduct);
+            }
+            skipped += following.skipped;
+            return this;
+        }
+    }
+
+    private final class SegmentTask extends RecursiveTask<ValidationResult> {
+
+        private final ByteBuffer window;
+        private final int from;
+        private final int to;
+        private final Predicate<FeedRow> knownValid;
+
+        private SegmentTask(ByteBuffer window, int from, int to, Predicate<FeedRow> knownValid) {
+            this.window = window;
+            this.from = from;
+            this.to = to;
+            this.knownValid = knownValid;
+        }
+
+        @Override
+        protected ValidationResult compute() {
+            int split = to - from > segmentSize ? nextLineStart(from + (to - from) / 2) : to;
+            if (split >= to) {
+                return validateSegment();
+            }
+            SegmentTask head = new SegmentTask(window, from, split, knownValid);
+            head.fork();
+            ValidationResult tail = new SegmentTask(window, split, to, knownValid).compute();
+            return head.join().append(tail);
+        }
+
+        private int nextLineStart(int index) {
+            for (int i = index; i < to; i++) {
+                byte b = window.get(i);
+                if (b == '\n') {
+                    return i + 1;
+                }
+                if (b == '\r') {
+                    return i + 1 < to && window.get(i + 1) == '\n' ? i + 2 : i + 1;
+                }
+            }
+            return to;
+        }
+
+        private ValidationResult validateSegment() {
+            ByteBuffer segment = window.duplicate();
+            segment.limit(to).position(from);
+            FeedTokenizer tokenizer = new FeedTokenizer(segment);
+            ValidationResult result = new ValidationResult(new ArrayList<>(),
+                    new MaxSizedLinkedList<>(SynchronizerService.MAX_INVALID_REPORTABLE));
+            while (tokenizer.next()) {
+                FeedRow row = tokenizer.row();
+                if (!knownValid.test(row) && errorCheckerService.hasError(row, result.invalidProducts)) {
+                    result.skipped++;
+                } else {
+                    result.validRows.add(row.copy());
+                }
+            }
+            return result;
+        }
+    }
+}
@@ -0,0 +1,170 @@
+package hu.tomlincoln.catalogsync.service;
+
+import hu.tomlincoln.catalogsync.config.InboxProperties;
+import hu.tomlincoln.catalogsync.dto.SyncJobDTO;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+
+import javax.annotation.PreDestroy;
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Watches the inbox directory and queues a sync job for every feed file created or changed in it. A file is only
+ * queued once it has not been written for the debounce period, so half-written files are not synchronized.
+ */
+@Service
+public class InboxWatcherService {
+
+    private static final Logger LOG = LoggerFactory.getLogger(InboxWatcherService.class);
+
+    private final SyncJobService syncJobService;
+    private final Path directory;
+    private final long debounceMillis;
+    // Only touched by the watcher thread
+    private final Map<Path, PendingFile> pendingFiles = new HashMap<>();
+    private WatchService watchService;
+
+    public InboxWatcherService(SyncJobService syncJobService, InboxProperties inboxProperties) {
+        this.syncJobService = syncJobService;
+        this.directory = inboxProperties.getDirectory();
+        this.debounceMillis = inboxProperties.getDebounce().toMillis();
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() throws IOException {
+        if (directory == null) {
+            return;
+        }
+        Files.createDirectories(directory);
+        watchService = directory.getFileSystem().newWatchService();
+        directory.register(watchService, StandardWatchEventKinds.ENTRY_CREATE, StandardWatchEventKinds.ENTRY_MODIFY);
+        Thread thread = new Thread(this::watch, "inbox-watcher");
+        thread.setDaemon(true);
+        thread.start();
+        LOG.debug("Watching " + directory + " for feed files");
+    }
+
+    @PreDestroy
+    public void stop() throws IOException {
+        if (watchService != null) {
+            watchService.close();
+        }
+    }
+
+    private void watch() {
+        // Files dropped while the service was down are synchronized as well, an unchanged one only costs its hash
+        scanDirectory();
+        try {
+            while (true) {
+                WatchKey key = watchService.poll(debounceMillis, TimeUnit.MILLISECONDS);
+                if (key != null) {
+                    for (WatchEvent<?> event : key.pollEvents()) {
+                        try {
+                            if (event.kind() == StandardWatchEventKinds.OVERFLOW) {
+                                scanDirectory();
+                            } else {
+                                schedule(directory.resolve((Path) event.context()));
+                            }
+                        } catch (RuntimeException e) {
+                            // One bad event must not stop the inbox
+                            LOG.error("Could not handle " + event.kind() + " of " + event.context(), e);
+                        }
+                    }
+                    key.reset();
+                }
+                submitSettledFiles();
+            }
+        } catch (ClosedWatchServiceException | InterruptedException e) {
+            LOG.debug("Stopped watching " + directory);
+        }
+    }
+
+    private void scanDirectory() {
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory)) {
+            files.forEach(this::schedule);
+        } catch (IOException | RuntimeException e) {
+            LOG.warn("Could not list " + directory, e);
+        }
+    }
+
+    private void schedule(Path file) {
+        if (Files.isRegularFile(file)) {
+            pendingFiles.put(file, new PendingFile(size(file), System.currentTimeMillis()));
+        }
+    }
+
+    private void submitSettledFiles() {
+        long now = System.currentTimeMillis();
+        Iterator<Map.Entry<Path, PendingFile>> iterator = pendingFiles.entrySet().iterator();
+        while (iterator.hasNext()) {
+            Map.Entry<Path, PendingFile> entry = iterator.next();
+            PendingFile pendingFile = entry.getValue();
+            if (pendingFile.lastWrite + debounceMillis > now) {
+                continue;
+            }
+            Path file = entry.getKey();
+            if (!Files.isRegularFile(file)) {
+                iterator.remove();
+                continue;
+            }
+            long size = size(file);
+            if (size != pendingFile.size) {
+                // Still being written without the file system telling us
+                entry.setValue(new PendingFile(size, now));
+                continue;
+            }
+            try {
+                SyncJobDTO job = syncJobService.submit(file.toString());
+                if (job.getStartedAt() != null && job.getStartedAt().toEpochMilli() < pendingFile.lastWrite) {
+                    // Joined a sync that started before this change, the file has to be synchronized again
+                    entry.setValue(new PendingFile(size, pendingFile.lastWrite));
+                } else {
+                    LOG.debug("Queued " + file + " as sync job " + job.getId());
+                    iterator.remove();
+                }
+            } catch (RejectedExecutionException e) {
+                // Stays pending and is retried on the next round
+                LOG.debug("Sync job queue is full, " + file + " stays pending");
+            } catch (RuntimeException e) {
+                // Dropped until it changes again, retrying would most likely fail the same way
+                LOG.error("Could not submit " + file, e);
+                iterator.remove();
+            }
+        }
+    }
+
+    private static long size(Path file) {
+        try {
+            return Files.size(file);
+        } catch (IOException e) {
+            return -1;
+        }
+    }
+
+    private static final class PendingFile {
+        private final long size;
+        // When the last write was noticed
+        private final long lastWrite;
+
+        private PendingFile(long size, long lastWrite) {
+            this.size = size;
+            this.lastWrite = lastWrite;
+        }
+    }
+}
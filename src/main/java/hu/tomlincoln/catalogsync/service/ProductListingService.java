@@ -0,0 +1,82 @@
+package hu.tomlincoln.catalogsync.service;
+
+import hu.tomlincoln.catalogsync.domain.Product;
+import hu.tomlincoln.catalogsync.dto.ProductFilterDTO;
+import hu.tomlincoln.catalogsync.dto.ProductPageDTO;
+import hu.tomlincoln.catalogsync.repository.ProductBulkWriter;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import javax.persistence.EntityManager;
+import javax.persistence.Query;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+@Service
+public class ProductListingService {
+
+    public static final int MAX_PAGE_SIZE = 1000;
+
+    private final EntityManager entityManager;
+    private final CatalogVersionService catalogVersionService;
+
+    public ProductListingService(EntityManager entityManager, CatalogVersionService catalogVersionService) {
+        this.entityManager = entityManager;
+        this.catalogVersionService = catalogVersionService;
+    }
+
+    /** Lists the published catalog version. */
+    @Transactional(readOnly = true)
+    public ProductPageDTO list(ProductFilterDTO filter, String after, int limit) {
+        return list(filter, after, limit, catalogVersionService.getPublished());
+    }
+
+    /**
+     * Returns the products of the catalog version after the given id in id order. Paging by the last seen id instead
+     * of an offset lets the database seek straight to the page through an index, so every page costs the same.
+     */
+    @Transactional(readOnly = true)
+    public ProductPageDTO list(ProductFilterDTO filter, String after, int limit, long version) {
+        StringBuilder conditions = new StringBuilder();
+        Map<String, Object> parameters = new LinkedHashMap<>();
+        addCondition(conditions, parameters, "id", ">", after);
+        addCondition(conditions, parameters, "availability", "=", filter.getAvailability());
+        addCondition(conditions, parameters, "brand", "=", filter.getBrand());
+        addCondition(conditions, parameters, "age_group", "=", filter.getAgeGroup());
+        addCondition(conditions, parameters, "google_product_category", "=", filter.getGoogleProductCategory());
+        parameters.put("version", version);
+        // Both sides filter and order by themselves, so each is read through its index and the two are merged
+        String sql = "SELECT " + ProductBulkWriter.COLUMNS + " FROM product WHERE version_from <= :version"
+                + conditions
+                + " UNION ALL SELECT " + ProductBulkWriter.COLUMNS + " FROM product_history"
+                + " WHERE version_from <= :version AND version_to > :version" + conditions
+                + " ORDER BY id";
+
+        Query query = entityManager.createNativeQuery(sql, Product.class);
+        parameters.forEach(query::setParameter);
+        // One extra row tells whether there is a next page without counting the rest
+        @SuppressWarnings("unchecked")
+        List<Product> products = query.setMaxResults(limit + 1).getResultList();
+        String nextCursor = null;
+        if (products.size() > limit) {
+            products = products.subList(0, limit);
+            nextCursor = products.get(limit - 1).getId();
+        }
+        return new ProductPageDTO.Builder()
+                .withProducts(products)
+                .withNextCursor(nextCursor)
+                .withVersion(version)
+                .build();
+    }
+
+    private static void addCondition(StringBuilder sql, Map<String, Object> parameters, String column,
+                                     String operator, Object value) {
+        if (value != null) {
+            sql.append(" AND ").append(column).append(' ').append(operator).append(" :").append(column);
+            // Enums are stored by name
+            parameters.put(column, value instanceof Enum ? ((Enum<?>) value).name() : value);
+        }
+    }
+
+}
@@ -0,0 +1,75 @@
+package hu.tomlincoln.catalogsync.service;
+
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.LoadingCache;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import hu.tomlincoln.catalogsync.config.ProductCacheProperties;
+import hu.tomlincoln.catalogsync.domain.Product;
+import hu.tomlincoln.catalogsync.dto.CacheStatsDTO;
+import hu.tomlincoln.catalogsync.repository.ProductRepository;
+import org.springframework.stereotype.Service;
+
+import java.util.Objects;
+import java.util.Optional;
+
+@Service
+public class ProductLookupService {
+
+    // A published version never changes, so nothing cached needs to be invalidated, not even missing ids
+    private final LoadingCache<VersionedId, Optional<Product>> cache;
+    private final CatalogVersionService catalogVersionService;
+
+    public ProductLookupService(ProductRepository productRepository, CatalogVersionService catalogVersionService,
+                                ProductCacheProperties productCacheProperties) {
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(productCacheProperties.getMaximumSize())
+                .expireAfterWrite(productCacheProperties.getExpireAfterWrite())
+                .recordStats()
+                .build(key -> productRepository.findInVersion(key.id, key.version));
+        this.catalogVersionService = catalogVersionService;
+    }
+
+    /** The product in the published catalog version. */
+    public Optional<Product> findById(String id) {
+        return findById(id, catalogVersionService.getPublished());
+    }
+
+    public Optional<Product> findById(String id, long version) {
+        return cache.get(new VersionedId(id, version));
+    }
+
+    public CacheStatsDTO getStats() {
+        CacheStats stats = cache.stats();
+        return new CacheStatsDTO.Builder()
+                .withSize(cache.estimatedSize())
+                .withHitCount(stats.hitCount())
+                .withMissCount(stats.missCount())
+                .withHitRate(stats.hitRate())
+                .withEvictionCount(stats.evictionCount())
+                .build();
+    }
+
+    private static final class VersionedId {
+        private final String id;
+        private final long version;
+
+        private VersionedId(String id, long version) {
+            this.id = id;
+            this.version = version;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (!(o instanceof VersionedId)) return false;
+            VersionedId that = (VersionedId) o;
+            return version == that.version && id.equals(that.id);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(id, version);
+        }
+    }
+
+}
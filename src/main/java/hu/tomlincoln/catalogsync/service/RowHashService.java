@@ -0,0 +1,163 @@
+package hu.tomlincoln.catalogsync.service;
+
+import hu.tomlincoln.catalogsync.config.SyncProperties;
+import hu.tomlincoln.catalogsync.domain.Product;
+import hu.tomlincoln.catalogsync.feed.FeedRow;
+import hu.tomlincoln.catalogsync.index.RowHashIndex;
+import hu.tomlincoln.catalogsync.repository.CatalogStateRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.stereotype.Service;
+
+import javax.annotation.PreDestroy;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.Collection;
+import java.util.Map;
+
+/**
+ * Knows the hash of the raw feed line every stored product came from, so a line that is byte for byte the same as
+ * last time is known to be valid and unchanged without validating, parsing or comparing it with the database.
+ * <p>
+ * Only used by synchronizations, which never run concurrently, so apart from the parallel lookups during
+ * validation it is accessed by one thread at a time.
+ * <p>
+ * With an index file configured the hashes are kept off the heap and survive restarts. The file is restored only if
+ * it was closed cleanly with the token of the catalog, and the token is renewed whenever the catalog changes without
+ * the file following, so a restored file is never behind the products.
+ */
+@Service
+public class RowHashService implements CatalogChangeListener {
+
+    private static final Logger LOG = LoggerFactory.getLogger(RowHashService.class);
+
+    private final JdbcTemplate jdbcTemplate;
+    private final CatalogStateRepository catalogStateRepository;
+    private final SyncProperties syncProperties;
+    private RowHashIndex rowHashIndex = new RowHashIndex();
+    private boolean loaded;
+    private boolean tokenRenewed;
+
+    public RowHashService(JdbcTemplate jdbcTemplate, CatalogStateRepository catalogStateRepository,
+                          SyncProperties syncProperties) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.catalogStateRepository = catalogStateRepository;
+        this.syncProperties = syncProperties;
+    }
+
+    /**
+     * Restores the index file or loads the line hashes stored with the products, once, before the first
+     * synchronization.
+     */
+    public synchronized void load() {
+        if (loaded) {
+            return;
+        }
+        RowHashIndex index = null;
+        Path file = syncProperties.getRowHashIndexFile();
+        if (file != null) {
+            try {
+                index = RowHashIndex.open(file, catalogStateRepository.getToken());
+            } catch (IOException e) {
+                LOG.warn("Row hashes are kept on the heap, " + file + " could not be opened: " + e.getMessage());
+                // The file will miss the changes from now on
+                catalogStateRepository.renewToken();
+            }
+        }
+        if (index == null) {
+            index = new RowHashIndex();
+        }
+        if (index.isRestored()) {
+            LOG.debug("Row hashes restored for " + index.size() + " products from " + file);
+        } else {
+            loadStored(index);
+        }
+        rowHashIndex = index;
+        loaded = true;
+        tokenRenewed = false;
+    }
+
+    /** Loads the line hashes stored with the products again, after changes the index followed were undone. */
+    public synchronized void reload() {
+        if (!loaded) {
+            // Loaded from the products anyway
+            return;
+        }
+        rowHashIndex.clear();
+        loadStored(rowHashIndex);
+    }
+
+    public boolean isUnchanged(FeedRow row) {
+        return rowHashIndex.matches(row.fieldHash(0), row.lineHash());
+    }
+
+    /**
+     * False if no product is stored with the id of the row. Every stored id is in the index, so this is exact apart
+     * from ids with colliding 64-bit hashes. Those mostly make a new id look stored, which only costs a lookup; the
+     * rare stored id hidden by deleting its twin is still written right by the upsert, just counted as added.
+     */
+    public boolean mayBeStored(FeedRow row) {
+        return rowHashIndex.contains(row.fieldHash(0));
+    }
+
+    /** Records new lines of products whose content did not change, by id. */
+    public synchronized void refresh(Map<String, Long> lineHashes) {
+        if (!loaded) {
+            catalogChangedWithoutIndex();
+            return;
+        }
+        lineHashes.forEach((id, lineHash) -> rowHashIndex.put(FeedRow.hash(id), lineHash));
+    }
+
+    @Override
+    public synchronized void productsUpserted(Collection<Product> products) {
+        if (!loaded) {
+            // Loaded with everything stored so far once it is needed
+            catalogChangedWithoutIndex();
+            return;
+        }
+        for (Product product : products) {
+            rowHashIndex.put(FeedRow.hash(product.getId()), product.getRowHash());
+        }
+    }
+
+    @Override
+    public synchronized void productsDeleted(Collection<String> ids) {
+        if (!loaded) {
+            catalogChangedWithoutIndex();
+            return;
+        }
+        for (String id : ids) {
+            rowHashIndex.remove(FeedRow.hash(id));
+        }
+    }
+
+    @PreDestroy
+    public synchronized void close() throws IOException {
+        if (!loaded) {
+            return;
+        }
+        // A sync still running finds no hashes, so it treats every row as changed and renews the token if it writes
+        RowHashIndex closing = rowHashIndex;
+        rowHashIndex = new RowHashIndex();
+        loaded = false;
+        closing.close();
+    }
+
+    private void loadStored(RowHashIndex index) {
+        jdbcTemplate.query("SELECT id, row_hash FROM product",
+                (RowCallbackHandler) rs -> index.put(FeedRow.hash(rs.getString(1)), rs.getLong(2)));
+        LOG.debug("Row hashes loaded for " + index.size() + " products");
+    }
+
+    private void catalogChangedWithoutIndex() {
+        // Only a file may be restored later, and renewing once until the next load is enough to stop that
+        if (syncProperties.getRowHashIndexFile() != null && !tokenRenewed) {
+            catalogStateRepository.renewToken();
+            tokenRenewed = true;
+        }
+    }
+
+}
@@ -0,0 +1,48 @@
+package hu.tomlincoln.catalogsync.service;
+
+import hu.tomlincoln.catalogsync.dto.SearchHitDTO;
+import hu.tomlincoln.catalogsync.index.SearchText;
+import hu.tomlincoln.catalogsync.repository.CatalogStateRepository;
+import hu.tomlincoln.catalogsync.repository.ProductSearchRepository;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.Collections;
+import java.util.List;
+
+@Service
+public class SearchService implements CatalogPublishListener {
+
+    private final ProductSearchRepository productSearchRepository;
+    private final CatalogStateRepository catalogStateRepository;
+
+    public SearchService(ProductSearchRepository productSearchRepository,
+                         CatalogStateRepository catalogStateRepository) {
+        this.productSearchRepository = productSearchRepository;
+        this.catalogStateRepository = catalogStateRepository;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void build() {
+        productSearchRepository.indexAll(catalogStateRepository.getPublishedVersion());
+    }
+
+    /** Products of the published version containing every word of the text, the most relevant first. */
+    @Transactional(readOnly = true)
+    public List<SearchHitDTO> search(String text, int limit) {
+        String matchQuery = SearchText.toMatchQuery(text);
+        if (matchQuery.isEmpty()) {
+            return Collections.emptyList();
+        }
+        return productSearchRepository.search(matchQuery, limit);
+    }
+
+    @Override
+    public void versionPublished(long version) {
+        // Committed with the version, so a search sees all of it or nothing
+        productSearchRepository.applyVersion(version);
+    }
+
+}
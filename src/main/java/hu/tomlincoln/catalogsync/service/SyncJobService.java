@@ -0,0 +1,143 @@
+package hu.tomlincoln.catalogsync.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import hu.tomlincoln.catalogsync.config.SyncProperties;
+import hu.tomlincoln.catalogsync.dto.ReportDTO;
+import hu.tomlincoln.catalogsync.dto.SyncJobDTO;
+import hu.tomlincoln.catalogsync.dto.SyncJobStatus;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Service;
+
+import javax.annotation.PreDestroy;
+import java.time.Instant;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+@Service
+public class SyncJobService {
+
+    private static final Logger LOG = LoggerFactory.getLogger(SyncJobService.class);
+
+    private final SynchronizerService synchronizerService;
+    private final ThreadPoolExecutor executor;
+    private final Cache<String, SyncJob> jobs;
+    // The queued or running job of every feed, later submissions of the same feed join it
+    private final ConcurrentMap<String, SyncJob> inFlightJobs = new ConcurrentHashMap<>();
+    private final ConcurrentMap<String, SyncJob> latestJobs = new ConcurrentHashMap<>();
+
+    public SyncJobService(SynchronizerService synchronizerService, SyncProperties syncProperties) {
+        this.synchronizerService = synchronizerService;
+        // A single worker, the syncs share the SQLite database and the staging table so they must not overlap
+        this.executor = new ThreadPoolExecutor(1, 1, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(syncProperties.getJobQueueCapacity()), runnable -> new Thread(runnable, "sync-job"));
+        this.jobs = Caffeine.newBuilder()
+                .maximumSize(syncProperties.getRetainedJobs())
+                .build();
+    }
+
+    /**
+     * Queues a sync of the feed and returns at once. If the feed already has a queued or running job, that job is
+     * returned instead of starting another one.
+     *
+     * @throws RejectedExecutionException if the queue is full
+     */
+    public SyncJobDTO submit(String filename) {
+        SyncJob[] created = new SyncJob[1];
+        SyncJob job = inFlightJobs.computeIfAbsent(filename,
+                feed -> created[0] = new SyncJob(UUID.randomUUID().toString(), feed));
+        if (job != created[0]) {
+            return job.toDTO();
+        }
+        jobs.put(job.id, job);
+        try {
+            executor.execute(() -> run(job));
+        } catch (RejectedExecutionException e) {
+            // Submissions that joined it meanwhile find it failed
+            inFlightJobs.remove(filename, job);
+            job.errorMessage = "Sync job queue is full";
+            job.status = SyncJobStatus.FAILED;
+            throw e;
+        }
+        latestJobs.put(filename, job);
+        return job.toDTO();
+    }
+
+    public Optional<SyncJobDTO> getJob(String id) {
+        return Optional.ofNullable(jobs.getIfPresent(id)).map(SyncJob::toDTO);
+    }
+
+    /** The last submitted job of every feed, so the latest report of each feed stays available. */
+    public List<SyncJobDTO> getLatestJobs() {
+        return latestJobs.values().stream().map(SyncJob::toDTO).collect(Collectors.toList());
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    private void run(SyncJob job) {
+        job.startedAt = Instant.now();
+        job.status = SyncJobStatus.RUNNING;
+        long startTime = System.currentTimeMillis();
+        LOG.debug("Starting synchronizing " + job.feed + "...");
+        ReportDTO report = null;
+        Throwable failure = null;
+        try {
+            report = synchronizerService.synchronize(job.feed);
+        } catch (Throwable e) {
+            LOG.error("Synchronizing " + job.feed + " failed", e);
+            failure = e;
+            if (e instanceof Error) {
+                // Recorded below all the same, so the job does not stay running and block the feed
+                throw (Error) e;
+            }
+        } finally {
+            // Leave the in-flight jobs before finishing, so no new submission can join a finished job
+            inFlightJobs.remove(job.feed, job);
+            if (failure == null) {
+                job.report = report;
+                job.status = SyncJobStatus.DONE;
+            } else {
+                job.errorMessage = failure.getMessage();
+                job.status = SyncJobStatus.FAILED;
+            }
+        }
+        LOG.debug("Finished synchronizing " + job.feed + " took " + (System.currentTimeMillis() - startTime) + "ms");
+    }
+
+    private static final class SyncJob {
+        private final String id;
+        private final String feed;
+        private volatile SyncJobStatus status = SyncJobStatus.QUEUED;
+        private volatile Instant startedAt;
+        private volatile ReportDTO report;
+        private volatile String errorMessage;
+
+        private SyncJob(String id, String feed) {
+            this.id = id;
+            this.feed = feed;
+        }
+
+        private SyncJobDTO toDTO() {
+            return new SyncJobDTO.Builder()
+                    .withId(id)
+                    .withFeed(feed)
+                    .withStatus(status)
+                    .withStartedAt(startedAt)
+                    .withReport(report)
+                    .withErrorMessage(errorMessage)
+                    .build();
+        }
+    }
+}
@@ -1,82 +1,428 @@
 package hu.tomlincoln.catalogsync.service;
 
+import hu.tomlincoln.catalogsync.config.SyncProperties;
 import hu.tomlincoln.catalogsync.domain.Product;
+import hu.tomlincoln.catalogsync.domain.SyncCheckpoint;
 import hu.tomlincoln.catalogsync.dto.InvalidProductDTO;
 import hu.tomlincoln.catalogsync.dto.MaxSizedLinkedList;
 import hu.tomlincoln.catalogsync.dto.ReportDTO;
+import hu.tomlincoln.catalogsync.feed.FeedCompression;
+import hu.tomlincoln.catalogsync.feed.FeedFingerprint;
+import hu.tomlincoln.catalogsync.feed.FeedRow;
+import hu.tomlincoln.catalogsync.feed.FeedSorter;
+import hu.tomlincoln.catalogsync.feed.FeedTokenizer;
+import hu.tomlincoln.catalogsync.feed.FeedWindowSource;
+import hu.tomlincoln.catalogsync.feed.MappedFeedReader;
+import hu.tomlincoln.catalogsync.feed.StreamFeedReader;
+import hu.tomlincoln.catalogsync.repository.FeedSyncRecordRepository;
+import hu.tomlincoln.catalogsync.repository.ProductBulkWriter;
 import hu.tomlincoln.catalogsync.repository.ProductRepository;
+import hu.tomlincoln.catalogsync.repository.SyncCheckpointRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
 
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
-import java.util.HashSet;
+import java.util.ArrayList;
 import java.util.List;
-import java.util.Set;
-import java.util.stream.Collectors;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Predicate;
 
 
 @Service
 public class SynchronizerService {
 
     public static final int MAX_INVALID_REPORTABLE = 12;
+    private static final Logger LOG = LoggerFactory.getLogger(SynchronizerService.class);
 
     private final ProductRepository productRepository;
-    private final ErrorCheckerService errorCheckerService;
-    private final IdProviderService idProviderService;
-    private final ProductProviderService productProviderService;
+    private final ProductBulkWriter productBulkWriter;
+    private final FeedSyncRecordRepository feedSyncRecordRepository;
+    private final SyncCheckpointRepository syncCheckpointRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final FeedValidationService feedValidationService;
+    private final DiffService diffService;
+    private final RowHashService rowHashService;
+    private final CatalogVersionService catalogVersionService;
+    private final SyncProperties syncProperties;
+    private final List<CatalogChangeListener> catalogChangeListeners;
+    // Every sync works on the same staging table, so they must not overlap
+    private final Lock syncLock = new ReentrantLock();
 
-    public SynchronizerService(ProductRepository productRepository, ErrorCheckerService errorCheckerService,
-                               IdProviderService idProviderService, ProductProviderService productProviderService) {
+    public SynchronizerService(ProductRepository productRepository, ProductBulkWriter productBulkWriter,
+                               FeedSyncRecordRepository feedSyncRecordRepository,
+                               SyncCheckpointRepository syncCheckpointRepository,
+                               TransactionTemplate transactionTemplate,
+                               FeedValidationService feedValidationService, DiffService diffService,
+                               RowHashService rowHashService, CatalogVersionService catalogVersionService,
+                               SyncProperties syncProperties,
+                               List<CatalogChangeListener> catalogChangeListeners) {
         this.productRepository = productRepository;
-        this.errorCheckerService = errorCheckerService;
-        this.idProviderService = idProviderService;
-        this.productProviderService = productProviderService;
+        this.productBulkWriter = productBulkWriter;
+        this.feedSyncRecordRepository = feedSyncRecordRepository;
+        this.syncCheckpointRepository = syncCheckpointRepository;
+        this.transactionTemplate = transactionTemplate;
+        this.feedValidationService = feedValidationService;
+        this.diffService = diffService;
+        this.rowHashService = rowHashService;
+        this.catalogVersionService = catalogVersionService;
+        this.syncProperties = syncProperties;
+        this.catalogChangeListeners = catalogChangeListeners;
     }
 
     public ReportDTO synchronize(String filename) {
-        long skipped = 0;
-        final List<InvalidProductDTO> invalidProducts = new MaxSizedLinkedList<>(MAX_INVALID_REPORTABLE);
-        List<String> lines;
         Path filePath = Paths.get(filename);
+        String source = filePath.toAbsolutePath().normalize().toString();
+        syncLock.lock();
         try {
-            lines = Files.readAllLines(filePath);
+            long size = Files.size(filePath);
+            long modifiedAt = Files.getLastModifiedTime(filePath).toMillis();
+            // Only staged syncs continue, the sorted runs of a merge are gone once it stops
+            boolean staged = syncProperties.getDiffMode() == SyncProperties.DiffMode.STAGED;
+            CompletableFuture<FeedFingerprint> hashed;
+            Optional<SyncCheckpoint> checkpoint = Optional.empty();
+            if (feedSyncRecordRepository.isRecorded(source, size, modifiedAt)
+                    || (staged && syncCheckpointRepository.exists(source, size, modifiedAt))) {
+                // Only a file that looks the same as a stored one is read in full to tell whether it is
+                FeedFingerprint known = FeedFingerprint.of(filePath);
+                Optional<ReportDTO> unchangedReport = feedSyncRecordRepository.findUnchangedReport(source, known);
+                if (unchangedReport.isPresent()) {
+                    LOG.debug("Feed " + source + " did not change since its last synchronization");
+                    return unchangedReport.get();
+                }
+                checkpoint = staged ? syncCheckpointRepository.find(source, known) : Optional.empty();
+                hashed = CompletableFuture.completedFuture(known);
+            } else {
+                // A changed file is hashed while it is synchronized, the hash is only needed to save the sync
+                hashed = CompletableFuture.supplyAsync(() -> {
+                    try {
+                        return FeedFingerprint.of(filePath);
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                });
+            }
+            // Never fails, a hash that failed or is of another size or mtime than the one synchronized is null
+            CompletableFuture<FeedFingerprint> fingerprint = hashed.handle((known, e) -> {
+                if (e != null) {
+                    LOG.warn("Feed " + source + " could not be hashed, it is synchronized in full next time", e);
+                    return null;
+                }
+                return known.getSize() == size && known.getModifiedAt() == modifiedAt ? known : null;
+            });
+            ReportDTO report;
+            try (FeedWindowSource feed = open(filePath)) {
+                report = synchronize(feed, checkpoint.orElseGet(() -> new SyncCheckpoint(source, size, modifiedAt,
+                        contentHashIfKnown(fingerprint))), checkpoint.isPresent(), fingerprint);
+            }
+            FeedFingerprint known = fingerprint.join();
+            if (known != null && isUnchanged(source, size, modifiedAt)) {
+                feedSyncRecordRepository.save(source, known, report);
+            } else {
+                // The hash may be of other bytes than were synchronized, the cleared record stays cleared
+                LOG.warn("Feed " + source + " changed while it was synchronized, it is synchronized in full next time");
+            }
+            return report;
         } catch (IOException e) {
+            // Chunks written before a mid-file read error stay in place with their checkpoint, so a retry continues
+            // after them, but the report is the same as before
             return ReportDTO.getEmptyReport();
+        } finally {
+            syncLock.unlock();
         }
+    }
 
-        // Skip 1 is the header
-        List<String[]> splitLines = lines.stream().skip(1).map(s -> s.split("\\t")).collect(Collectors.toList());
-        HashSet<String[]> validatedProducts = new HashSet<>();
-        for (String[] productArray : splitLines) {
-            String[] cleanedProductArray = Product.cleanProductArrayFromParenthesis(productArray);
-            if (errorCheckerService.hasError(cleanedProductArray, invalidProducts)) {
-                skipped++;
-            } else {
-                validatedProducts.add(cleanedProductArray);
-            }
+    /**
+     * Synchronizes a feed read from the stream as it arrives, the feed is never held in memory or on disk. It does not
+     * wait for a running sync, its sender would be kept waiting with it.
+     *
+     * @throws RejectedExecutionException if another sync is running
+     */
+    public ReportDTO synchronize(InputStream inputStream) {
+        if (!syncLock.tryLock()) {
+            throw new RejectedExecutionException("Another synchronization is running");
+        }
+        try (StreamFeedReader reader = new StreamFeedReader(inputStream, (int) syncProperties.getWindowSize().toBytes())) {
+            // A stream can not be read again, so it has no checkpoint to continue from
+            return synchronize(reader, new SyncCheckpoint(), false, CompletableFuture.completedFuture(null));
+        } catch (IOException e) {
+            return ReportDTO.getEmptyReport();
+        } finally {
+            syncLock.unlock();
         }
+    }
 
-        Set<String> idsToBeUpdated = idProviderService.getIdsWhereExists(validatedProducts);
-        Set<Product> productsToBeUpdated = productProviderService.getProductsToBeUpdated(idsToBeUpdated, validatedProducts);
-        productRepository.saveAll(productsToBeUpdated);
+    private FeedWindowSource open(Path filePath) throws IOException {
+        int windowSize = (int) syncProperties.getWindowSize().toBytes();
+        FeedCompression compression = FeedCompression.detect(filePath);
+        if (compression == FeedCompression.NONE) {
+            return MappedFeedReader.open(filePath, windowSize);
+        }
+        // A compressed feed cannot be mapped, it is inflated window by window instead
+        InputStream inputStream = Files.newInputStream(filePath);
+        try {
+            return new StreamFeedReader(compression.decompress(inputStream), windowSize);
+        } catch (IOException e) {
+            inputStream.close();
+            throw e;
+        }
+    }
 
-        Set<String> productIdsToBeDeleted = idProviderService.getIdsWhereNotExists(validatedProducts);
-        productRepository.deleteAllById(productIdsToBeDeleted);
+    private ReportDTO synchronize(FeedWindowSource source, SyncCheckpoint checkpoint, boolean resumed,
+                                  CompletableFuture<FeedFingerprint> fingerprint) throws IOException {
+        // Whatever happens from here on, the catalog may no longer be what the last recorded feed left behind
+        feedSyncRecordRepository.clear();
+        if (!resumed) {
+            // The staged ids it continues with are about to be forgotten
+            syncCheckpointRepository.clear();
+            // A failed sync leaves its chunks in the draft, a new one diffs and counts against the published version
+            if (productBulkWriter.discardDraft(catalogVersionService.getDraft()) > 0) {
+                rowHashService.reload();
+            }
+        }
+        if (syncProperties.getDiffMode() == SyncProperties.DiffMode.MERGE) {
+            try (FeedSorter sorter = new FeedSorter(syncProperties.getSortBufferSize().toBytes(),
+                    syncProperties.getSpillDirectory())) {
+                return synchronize(source, sorter, checkpoint, false, fingerprint);
+            }
+        }
+        return synchronize(source, null, checkpoint, resumed, fingerprint);
+    }
 
-        Set<String> allToBeCreatedIds = validatedProducts.stream().map(s -> s[0]).collect(Collectors.toSet());
-        allToBeCreatedIds.removeIf(idsToBeUpdated::contains);
-        Set<Product> productsToBeCreated = productProviderService.getProductsToBeCreated(allToBeCreatedIds, validatedProducts);
-        productRepository.saveAll(productsToBeCreated);
+    /**
+     * Diffs chunk by chunk against the staged ids, or, given a sorter, merges the sorted feed at the end. Every chunk
+     * is written in its own transaction. A staged sync of a file saves its checkpoint with every chunk, and a resumed
+     * one starts where its checkpoint left off; the invalid rows found before that are counted, but not listed.
+     * <p>
+     * Everything is written in the draft catalog version, which is published once the sync finished.
+     */
+    private ReportDTO synchronize(FeedWindowSource source, FeedSorter sorter, SyncCheckpoint checkpoint,
+                                  boolean resumed, CompletableFuture<FeedFingerprint> fingerprint)
+            throws IOException {
+        long version = catalogVersionService.getDraft();
+        long skipped = checkpoint.getSkipped();
+        final List<InvalidProductDTO> invalidProducts = new MaxSizedLinkedList<>(MAX_INVALID_REPORTABLE);
+        final ChunkResult total = new ChunkResult();
+        total.added = checkpoint.getAdded();
+        total.updated = checkpoint.getUpdated();
+        total.deleted = checkpoint.getDeleted();
+        final List<FeedRow> chunk = new ArrayList<>(syncProperties.getChunkSize());
+        // Merged rows are not known to be unchanged up front, their row hashes are only compared during the merge
+        Predicate<FeedRow> knownValid = row -> false;
+        if (sorter == null) {
+            // Only the ids are kept for the whole feed, in the staging table, rows are released chunk by chunk
+            if (resumed) {
+                LOG.debug("Continuing " + checkpoint.getSource() + " from byte " + checkpoint.getPosition()
+                        + " in phase " + checkpoint.getPhase());
+                diffService.resumeFeed();
+            } else {
+                diffService.beginFeed();
+            }
+            knownValid = rowHashService::isUnchanged;
+        }
+        if (checkpoint.getPhase() == SyncCheckpoint.Phase.READ) {
+            source.skipTo(checkpoint.getPosition());
+            boolean header = checkpoint.getPosition() == 0;
+            long rowsToSkip = checkpoint.getWrittenRows();
+            long windowPosition = checkpoint.getPosition();
+            long windowRows = checkpoint.getWrittenRows();
+            long skippedBeforeWindow = skipped;
+            ByteBuffer window;
+            while (true) {
+                long nextWindowPosition = source.position();
+                if ((window = source.nextWindow()) == null) {
+                    break;
+                }
+                windowPosition = nextWindowPosition;
+                windowRows = 0;
+                skippedBeforeWindow = skipped;
+                if (header) {
+                    // Skip 1 is the header
+                    FeedTokenizer tokenizer = new FeedTokenizer(window);
+                    tokenizer.next();
+                    window.position(tokenizer.position());
+                    header = false;
+                }
+                FeedValidationService.ValidationResult validationResult = feedValidationService.validate(window,
+                        knownValid);
+                skipped += validationResult.getSkipped();
+                for (InvalidProductDTO invalidProduct : validationResult.getInvalidProducts()) {
+                    if (invalidProducts.size() < MAX_INVALID_REPORTABLE) {
+                        invalidProducts.add(invalidProduct);
+                    }
+                }
+                for (FeedRow row : validationResult.getValidRows()) {
+                    windowRows++;
+                    if (rowsToSkip > 0) {
+                        // Written before the checkpoint
+                        rowsToSkip--;
+                        continue;
+                    }
+                    if (sorter != null) {
+                        sorter.add(row);
+                        continue;
+                    }
+                    chunk.add(row);
+                    if (chunk.size() >= syncProperties.getChunkSize()) {
+                        checkpoint.setPosition(windowPosition);
+                        checkpoint.setWrittenRows(windowRows);
+                        checkpoint.setSkipped(skippedBeforeWindow);
+                        writeChunk(chunk, checkpoint, total, version, fingerprint);
+                        chunk.clear();
+                    }
+                }
+            }
+            if (sorter != null) {
+                sorter.finish();
+                diffService.diffSorted(sorter, syncProperties.getChunkSize(), changeSet -> {
+                    total.add(transactionTemplate.execute(status -> write(changeSet, version)));
+                    notifyListeners(changeSet);
+                });
+            } else {
+                if (!chunk.isEmpty()) {
+                    checkpoint.setPosition(windowPosition);
+                    checkpoint.setWrittenRows(windowRows);
+                    checkpoint.setSkipped(skippedBeforeWindow);
+                    writeChunk(chunk, checkpoint, total, version, fingerprint);
+                }
+                checkpoint.setPhase(SyncCheckpoint.Phase.DELETE);
+                checkpoint.setSkipped(skipped);
+                saveCheckpoint(checkpoint, total, fingerprint);
+            }
+        }
+        if (sorter == null) {
+            // The staged ids tell what is missing from the feed, also after a restart in this phase
+            List<String> productIdsToBeDeleted = new ArrayList<>(diffService.getIdsToBeDeleted());
+            int commitInterval = syncProperties.getCommitInterval();
+            for (int from = 0; from < productIdsToBeDeleted.size(); from += commitInterval) {
+                List<String> part = productIdsToBeDeleted.subList(from,
+                        Math.min(productIdsToBeDeleted.size(), from + commitInterval));
+                transactionTemplate.executeWithoutResult(status -> {
+                    productBulkWriter.deleteAllById(part, version);
+                    total.deleted += part.size();
+                    saveCheckpoint(checkpoint, total, fingerprint);
+                });
+                catalogChangeListeners.forEach(listener -> listener.productsDeleted(part));
+            }
+            if (checkpoint.getSource() != null) {
+                syncCheckpointRepository.clear();
+            }
+        }
+        catalogVersionService.publish(version);
 
         return new ReportDTO.Builder()
-                .withAdded(productsToBeCreated.size())
-                .withUpdated(productsToBeUpdated.size())
-                .withNotChanged(productRepository.count() - productsToBeUpdated.size() - productsToBeCreated.size())
-                .withDeleted(productIdsToBeDeleted.size())
+                .withAdded(total.added)
+                .withUpdated(total.updated)
+                .withNotChanged(productRepository.count() - total.updated - total.added)
+                .withDeleted(total.deleted)
                 .withSkipped(skipped)
                 .withInvalidProducts(invalidProducts)
                 .build();
     }
+
+    /** Diffs and writes a chunk in one transaction with the checkpoint, then tells the listeners what changed. */
+    private void writeChunk(List<FeedRow> chunk, SyncCheckpoint checkpoint, ChunkResult total, long version,
+                            CompletableFuture<FeedFingerprint> fingerprint) {
+        DiffService.ChangeSet changeSet = transactionTemplate.execute(status -> {
+            DiffService.ChangeSet diffed = diffService.diff(chunk, checkpoint.getChunk());
+            total.add(write(diffed, version));
+            checkpoint.setChunk(checkpoint.getChunk() + 1);
+            saveCheckpoint(checkpoint, total, fingerprint);
+            return diffed;
+        });
+        notifyListeners(changeSet);
+    }
+
+    private void saveCheckpoint(SyncCheckpoint checkpoint, ChunkResult total,
+                                CompletableFuture<FeedFingerprint> fingerprint) {
+        if (checkpoint.getSource() == null) {
+            return;
+        }
+        if (!isUnchanged(checkpoint.getSource(), checkpoint.getSize(), checkpoint.getModifiedAt())) {
+            // What was read may mix two versions of the file, so no position in it can be continued from
+            syncCheckpointRepository.clear();
+            return;
+        }
+        if (checkpoint.getContentHash() == null) {
+            // Not saved until the file is hashed, a sync failing before that starts over
+            checkpoint.setContentHash(contentHashIfKnown(fingerprint));
+            if (checkpoint.getContentHash() == null) {
+                return;
+            }
+        }
+        checkpoint.setAdded(total.added);
+        checkpoint.setUpdated(total.updated);
+        checkpoint.setDeleted(total.deleted);
+        syncCheckpointRepository.save(checkpoint);
+    }
+
+    private static Long contentHashIfKnown(CompletableFuture<FeedFingerprint> fingerprint) {
+        if (!fingerprint.isDone()) {
+            return null;
+        }
+        FeedFingerprint known = fingerprint.join();
+        return known == null ? null : known.getContentHash();
+    }
+
+    private static boolean isUnchanged(String source, long size, long modifiedAt) {
+        Path filePath = Paths.get(source);
+        try {
+            return Files.size(filePath) == size && Files.getLastModifiedTime(filePath).toMillis() == modifiedAt;
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
+    private ChunkResult write(DiffService.ChangeSet changeSet, long version) {
+        productBulkWriter.upsertAll(changeSet.getProductsToBeUpdated(), version);
+        productBulkWriter.upsertAll(changeSet.getProductsToBeCreated(), version);
+        productBulkWriter.updateRowHashes(changeSet.getRowHashesToBeRefreshed());
+        productBulkWriter.deleteAllById(changeSet.getProductIdsToBeDeleted(), version);
+
+        ChunkResult result = new ChunkResult();
+        result.added = changeSet.getProductsToBeCreated().size();
+        result.updated = changeSet.getProductsToBeUpdated().size();
+        result.deleted = changeSet.getProductIdsToBeDeleted().size();
+        return result;
+    }
+
+    /** Only called once the changes are committed, so nothing is cached that may still be rolled back. */
+    private void notifyListeners(DiffService.ChangeSet changeSet) {
+        rowHashService.refresh(changeSet.getRowHashesToBeRefreshed());
+        notifyUpserted(changeSet.getProductsToBeUpdated());
+        notifyUpserted(changeSet.getProductsToBeCreated());
+        List<String> productIdsToBeDeleted = changeSet.getProductIdsToBeDeleted();
+        if (!productIdsToBeDeleted.isEmpty()) {
+            catalogChangeListeners.forEach(listener -> listener.productsDeleted(productIdsToBeDeleted));
+        }
+    }
+
+    private void notifyUpserted(List<Product> products) {
+        if (!products.isEmpty()) {
+            catalogChangeListeners.forEach(listener -> listener.productsUpserted(products));
+        }
+    }
+
+    private static final class ChunkResult {
+        private long added;
+        private long updated;
+        private long deleted;
+
+        private void add(ChunkResult other) {
+            added += other.added;
+            updated += other.updated;
+            deleted += other.deleted;
+        }
+    }
 }
@@ -0,0 +1,49 @@
+-- Run on every start, so only what is missing is created and the catalog is kept over restarts. Matches the entity
+-- mappings, which Hibernate no longer creates tables from.
+CREATE TABLE IF NOT EXISTS catalog_state (
+    id INTEGER NOT NULL PRIMARY KEY,
+    published_version BIGINT NOT NULL,
+    token BIGINT NOT NULL
+);
+
+CREATE TABLE IF NOT EXISTS product (
+    id VARCHAR(50) NOT NULL PRIMARY KEY,
+    age_group VARCHAR(7),
+    availability VARCHAR(15) NOT NULL,
+    brand VARCHAR(70),
+    condition VARCHAR(11) NOT NULL,
+    content_hash BIGINT NOT NULL,
+    created_at DATETIME,
+    description VARCHAR(5000) NOT NULL,
+    google_product_category VARCHAR(255),
+    image_link VARCHAR(5000) NOT NULL,
+    link VARCHAR(5000) NOT NULL,
+    price_currency VARCHAR(255),
+    price_value NUMERIC(19, 2),
+    row_hash BIGINT NOT NULL,
+    sale_price_currency VARCHAR(255),
+    sale_price_value NUMERIC(19, 2),
+    title VARCHAR(150) NOT NULL,
+    version_from BIGINT NOT NULL
+);
+CREATE INDEX IF NOT EXISTS product_availability_id ON product (availability, id);
+CREATE INDEX IF NOT EXISTS product_brand_id ON product (brand, id);
+CREATE INDEX IF NOT EXISTS product_age_group_id ON product (age_group, id);
+CREATE INDEX IF NOT EXISTS product_google_product_category_id ON product (google_product_category, id);
+CREATE INDEX IF NOT EXISTS product_version_from ON product (version_from);
+
+CREATE TABLE IF NOT EXISTS sync_checkpoint (
+    id INTEGER NOT NULL PRIMARY KEY,
+    added BIGINT NOT NULL,
+    chunk INTEGER NOT NULL,
+    content_hash BIGINT,
+    deleted BIGINT NOT NULL,
+    modified_at BIGINT NOT NULL,
+    phase VARCHAR(15) NOT NULL,
+    position BIGINT NOT NULL,
+    size BIGINT NOT NULL,
+    skipped BIGINT NOT NULL,
+    source VARCHAR(4096) NOT NULL,
+    updated BIGINT NOT NULL,
+    written_rows BIGINT NOT NULL
+);
@@ -0,0 +1,46 @@
+package hu.tomlincoln.catalogsync.config;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.support.TransactionTemplate;
+
+@SpringBootTest
+class DataSourceConfigurationTest {
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Test
+    void databaseIsInWalMode() {
+        // GIVEN
+
+        // WHEN
+        String journalMode = jdbcTemplate.queryForObject("PRAGMA journal_mode", String.class);
+
+        //THEN
+        Assertions.assertEquals("wal", journalMode);
+    }
+
+    @Test
+    void readOnlyTransactionReadsButCanNotWrite() {
+        // GIVEN
+        TransactionTemplate readOnly = new TransactionTemplate(transactionTemplate.getTransactionManager());
+        readOnly.setReadOnly(true);
+
+        // WHEN
+        Long products = readOnly.execute(status -> jdbcTemplate.queryForObject("SELECT COUNT(*) FROM product",
+                Long.class));
+
+        //THEN
+        Assertions.assertNotNull(products);
+        Assertions.assertThrows(DataAccessException.class, () -> readOnly.executeWithoutResult(status ->
+                jdbcTemplate.update("DELETE FROM product")));
+    }
+}
@@ -0,0 +1,108 @@
+package hu.tomlincoln.catalogsync.feed;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.GZIPOutputStream;
+
+class FeedCompressionTest {
+
+    private static final byte[] FEED = "id\ttitle\n1\tone\n".getBytes(StandardCharsets.UTF_8);
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void checkGzipIsDetectedByMagicBytes() throws IOException {
+        // GIVEN
+        ByteArrayOutputStream compressed = new ByteArrayOutputStream();
+        try (OutputStream gzip = new GZIPOutputStream(compressed)) {
+            gzip.write(FEED);
+        }
+        Path file = Files.write(directory.resolve("feed.txt"), compressed.toByteArray());
+
+        // WHEN
+        FeedCompression compression = FeedCompression.detect(file);
+
+        //THEN
+        Assertions.assertEquals(FeedCompression.GZIP, compression);
+        Assertions.assertArrayEquals(FEED, inflate(compression, file));
+    }
+
+    @Test
+    void checkZlibIsDetectedByMagicBytes() throws IOException {
+        // GIVEN
+        ByteArrayOutputStream compressed = new ByteArrayOutputStream();
+        try (OutputStream zlib = new DeflaterOutputStream(compressed)) {
+            zlib.write(FEED);
+        }
+        Path file = Files.write(directory.resolve("feed.txt"), compressed.toByteArray());
+
+        // WHEN
+        FeedCompression compression = FeedCompression.detect(file);
+
+        //THEN
+        Assertions.assertEquals(FeedCompression.ZLIB, compression);
+        Assertions.assertArrayEquals(FEED, inflate(compression, file));
+    }
+
+    @Test
+    void checkRawDeflateIsDetectedByExtension() throws IOException {
+        // GIVEN
+        ByteArrayOutputStream compressed = new ByteArrayOutputStream();
+        Deflater deflater = new Deflater(Deflater.DEFAULT_COMPRESSION, true);
+        try (OutputStream deflate = new DeflaterOutputStream(compressed, deflater)) {
+            deflate.write(FEED);
+        }
+        Path file = Files.write(directory.resolve("feed.txt.deflate"), compressed.toByteArray());
+
+        // WHEN
+        FeedCompression compression = FeedCompression.detect(file);
+
+        //THEN
+        Assertions.assertEquals(FeedCompression.DEFLATE, compression);
+        Assertions.assertArrayEquals(FEED, inflate(compression, file));
+    }
+
+    @Test
+    void checkPlainFeedIsNotCompressed() throws IOException {
+        // GIVEN
+        Path file = Files.write(directory.resolve("feed.txt"), FEED);
+
+        // WHEN
+        FeedCompression compression = FeedCompression.detect(file);
+
+        //THEN
+        Assertions.assertEquals(FeedCompression.NONE, compression);
+    }
+
+    @Test
+    void checkPlainFeedStartingLikeZlibHeaderIsNotCompressed() throws IOException {
+        // GIVEN
+        // "80" passes the header checksum of a zlib stream
+        byte[] feed = "80123\tone\tdescription\n80124\ttwo\tdescription\n".getBytes(StandardCharsets.UTF_8);
+        Path file = Files.write(directory.resolve("feed.txt"), feed);
+
+        // WHEN
+        FeedCompression compression = FeedCompression.detect(file);
+
+        //THEN
+        Assertions.assertEquals(FeedCompression.NONE, compression);
+    }
+
+    private static byte[] inflate(FeedCompression compression, Path file) throws IOException {
+        try (InputStream inputStream = compression.decompress(Files.newInputStream(file))) {
+            return inputStream.readAllBytes();
+        }
+    }
+}
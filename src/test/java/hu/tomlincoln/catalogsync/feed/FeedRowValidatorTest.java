@@ -0,0 +1,100 @@
+package hu.tomlincoln.catalogsync.feed;
+
+import hu.tomlincoln.catalogsync.domain.ProductAvailability;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import java.math.BigDecimal;
+import java.net.MalformedURLException;
+import java.net.URL;
+import java.util.Arrays;
+import java.util.Currency;
+
+class FeedRowValidatorTest {
+
+    private final FeedRowValidator underTest = new FeedRowValidator();
+
+    @ParameterizedTest(name = "Check if price \"{0}\" is judged like BigDecimal and Currency do")
+    @ValueSource(strings = {"100 HUF", "140.52 HUF", "+1 EUR", "-1.5 USD", ".5 EUR", "5. EUR", ". EUR", "1.2.3 EUR",
+            "1e3 EUR", "1E+3 EUR", "1e EUR", "100 HUF ", "100 HUF  ", " 100 HUF", "100  HUF", "100 huf", "100 XXX",
+            "100 AAA", "100", "", " ", "١٢٣ EUR", "100 HU", "100 HUFF", "100 €", "+ EUR", "1,5 EUR"})
+    void checkPriceMatchesJdk(String price) {
+        // GIVEN
+        FeedRow row = FeedRow.of(validRowWith(FeedRowValidator.PRICE, price));
+
+        // WHEN
+        int result = underTest.validate(row);
+
+        // THEN
+        Assertions.assertEquals(!isPriceByJdk(price), result == FeedRowValidator.PRICE);
+    }
+
+    @ParameterizedTest(name = "Check if link \"{0}\" is judged like java.net.URL does")
+    @ValueSource(strings = {"https://www.asdasd.hu/valami.html", "http://www.other.com/link", "http:", "http",
+            "https:foo", "httpS://host/", "HTTP://host/", "httpx://host/", "http//host", "http://host:8080/a",
+            "http://host:/a", "http://host:+80/a", "http://host:-1/a", "http://host:-2/a", "http://host:-0/a",
+            "http://host:2147483647/", "http://host:2147483648/", "http://host:80a/", "http://not:aacce?:ptable-blah%other",
+            "https://not:acce?:ptable-blah%other", "http://user@host:80/", "http://a@b@c:xx/", "http://host/p:xx",
+            "http://host?q=1:2", "http://host#frag:x", "http://host:x#frag", "http:////host:x/", "http://[::1]:80/",
+            "http://[zz]/", "http://[::1]x/", "http://host:8080 ", "http://host/with space", "http://hőst/ű",
+            "http://host:٨٠/", "ftp://doodle.com/pub", "s9d7f6sd7896HHJG", "http:/x:y"})
+    void checkLinkMatchesJdk(String link) {
+        // GIVEN
+        FeedRow row = FeedRow.of(validRowWith(FeedRowValidator.LINK, link));
+
+        // WHEN
+        int result = underTest.validate(row);
+
+        // THEN
+        Assertions.assertEquals(!isLinkByJdk(link), result == FeedRowValidator.LINK);
+    }
+
+    @ParameterizedTest(name = "Check if availability \"{0}\" is judged like equalsIgnoreCase does")
+    @ValueSource(strings = {"in stock", "IN_STOCK", "In Stock", "ın stock", "in  stock", "instock", "preorder", ""})
+    void checkAvailabilityMatchesEqualsIgnoreCase(String availability) {
+        // GIVEN
+        FeedRow row = FeedRow.of(validRowWith(FeedRowValidator.AVAILABILITY, availability));
+
+        // WHEN
+        int result = underTest.validate(row);
+
+        // THEN
+        boolean expected = Arrays.stream(ProductAvailability.values())
+                .anyMatch(value -> value.name().equalsIgnoreCase(availability.replace(" ", "_")));
+        Assertions.assertEquals(!expected, result == FeedRowValidator.AVAILABILITY);
+    }
+
+    private static boolean isPriceByJdk(String price) {
+        try {
+            String[] splitPrice = price.split(" ");
+            if (splitPrice.length != 2) {
+                return false;
+            }
+            new BigDecimal(splitPrice[0]);
+            Currency.getInstance(splitPrice[1]);
+            return true;
+        } catch (IllegalArgumentException e) {
+            return false;
+        }
+    }
+
+    private static boolean isLinkByJdk(String link) {
+        try {
+            if (!link.startsWith("http")) {
+                return false;
+            }
+            new URL(link);
+            return true;
+        } catch (MalformedURLException e) {
+            return false;
+        }
+    }
+
+    private static String[] validRowWith(int field, String value) {
+        String[] row = {"12345ABCDE", "Some Title", "Some description", "IN_STOCK", "NEW", "100 HUF", "100 HUF",
+                "https://www.asdasd.hu/valami.html", "Some Brand", "https://www.asdasd.hu/valami2.jpg", "ADULT", "12345"};
+        row[field] = value;
+        return row;
+    }
+}
@@ -0,0 +1,92 @@
+package hu.tomlincoln.catalogsync.feed;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.TreeMap;
+import java.util.stream.Stream;
+
+class FeedSorterTest {
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void checkRowsComeInIdOrderWithFirstOccurrenceOnly() throws IOException {
+        // GIVEN
+        List<String> lines = List.of("b\tfirst b", "a\tfirst a", "c\tc", "a\tsecond a", "b\tsecond b");
+
+        // WHEN
+        List<String> sorted = sort(lines, Long.MAX_VALUE);
+
+        //THEN
+        Assertions.assertEquals(List.of("a\tfirst a", "b\tfirst b", "c\tc"), sorted);
+    }
+
+    @Test
+    void checkSpilledRunsMergeLikeInMemorySort() throws IOException {
+        // GIVEN
+        Random random = new Random(42);
+        List<String> lines = new ArrayList<>();
+        TreeMap<String, String> expected = new TreeMap<>(FeedSorter.ID_ORDER);
+        for (int i = 0; i < 2000; i++) {
+            String line = "id" + random.nextInt(500) + "\tline " + i;
+            lines.add(line);
+            expected.putIfAbsent(line.substring(0, line.indexOf('\t')), line);
+        }
+
+        // WHEN
+        List<String> sorted = sort(lines, 4096);
+
+        //THEN
+        Assertions.assertEquals(new ArrayList<>(expected.values()), sorted);
+        try (Stream<Path> files = Files.list(directory)) {
+            Assertions.assertEquals(0, files.count());
+        }
+    }
+
+    @Test
+    void checkIdOrderIsUtf8ByteOrder() {
+        // GIVEN
+        // U+FF61 is before U+1F600 in UTF-8, but its UTF-16 char is after the surrogate of U+1F600
+        String bmp = "\uFF61";
+        String supplementary = new String(Character.toChars(0x1F600));
+
+        // WHEN
+        int comparison = FeedSorter.ID_ORDER.compare(bmp, supplementary);
+
+        //THEN
+        Assertions.assertTrue(comparison < 0);
+        Assertions.assertTrue(bmp.compareTo(supplementary) > 0);
+        Assertions.assertTrue(FeedSorter.ID_ORDER.compare("a", "ab") < 0);
+    }
+
+    private List<String> sort(List<String> lines, long bufferSize) throws IOException {
+        List<String> sorted = new ArrayList<>();
+        try (FeedSorter underTest = new FeedSorter(bufferSize, directory)) {
+            for (String line : lines) {
+                FeedTokenizer tokenizer = new FeedTokenizer(ByteBuffer.wrap(line.getBytes(StandardCharsets.UTF_8)));
+                tokenizer.next();
+                underTest.add(tokenizer.row().copy());
+            }
+            underTest.finish();
+            if (bufferSize < Long.MAX_VALUE) {
+                Assertions.assertTrue(underTest.spilledRuns() > 1);
+            }
+            FeedRow row;
+            while ((row = underTest.next()) != null) {
+                sorted.add(String.join("\t", row.toArray()));
+            }
+        }
+        return sorted;
+    }
+}
@@ -0,0 +1,122 @@
+package hu.tomlincoln.catalogsync.feed;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+class FeedTokenizerTest {
+
+    @ParameterizedTest(name = "Check if \"{0}\" is split like String.split")
+    @ValueSource(strings = {"a\tb\tc", "a\t\tc", "a\tb\t\t", "\ta\tb", "", "\t\t", "a", "a\t\"\"\t"})
+    void checkFieldCountMatchesStringSplit(String line) {
+        // GIVEN
+        FeedTokenizer underTest = tokenizerOf(line + "\n");
+
+        // WHEN
+        underTest.next();
+
+        // THEN
+        Assertions.assertEquals(line.split("\\t").length, underTest.row().fieldCount());
+    }
+
+    @Test
+    void checkQuotesAreStrippedLikeTheOldDoubleCleaning() {
+        // GIVEN
+        String[] fields = {"\"in stock\"", "\"\"twice\"\"", "\"", "\"\"", "plain", "a\"b"};
+        FeedTokenizer underTest = tokenizerOf(String.join("\t", fields));
+
+        // WHEN
+        underTest.next();
+        String[] actual = underTest.row().toArray();
+
+        // THEN
+        Assertions.assertArrayEquals(new String[]{"in stock", "twice", "", "", "plain", "a\"b"}, actual);
+    }
+
+    @Test
+    void checkLineTerminators() {
+        // GIVEN
+        FeedTokenizer underTest = tokenizerOf("a\r\nb\rc\n\nd");
+        List<String> lines = new ArrayList<>();
+
+        // WHEN
+        while (underTest.next()) {
+            lines.add(String.join("|", underTest.row().toArray()));
+        }
+
+        // THEN
+        Assertions.assertEquals(Arrays.asList("a", "b", "c", "", "d"), lines);
+    }
+
+    @Test
+    void checkCharLengthWithoutDecoding() {
+        // GIVEN
+        String field = "árvíztűrő 😀 tükörfúrógép";
+        FeedTokenizer underTest = tokenizerOf(field + "\tx");
+
+        // WHEN
+        underTest.next();
+
+        // THEN
+        Assertions.assertEquals(field.length(), underTest.row().charLength(0));
+        Assertions.assertFalse(underTest.row().isAscii(0));
+        Assertions.assertTrue(underTest.row().isAscii(1));
+    }
+
+    @Test
+    void checkCopySurvivesTokenizerMovingOn() {
+        // GIVEN
+        FeedTokenizer underTest = tokenizerOf("first\t\"row\"\nsecond\trow");
+
+        // WHEN
+        underTest.next();
+        FeedRow copy = underTest.row().copy();
+        underTest.next();
+
+        // THEN
+        Assertions.assertArrayEquals(new String[]{"first", "row"}, copy.toArray());
+        Assertions.assertArrayEquals(new String[]{"second", "row"}, underTest.row().toArray());
+    }
+
+    @Test
+    void checkMappedWindowsEndOnLineBoundaries() throws Exception {
+        // GIVEN
+        Path feed = Files.createTempFile("feed", ".txt");
+        StringBuilder content = new StringBuilder();
+        for (int i = 0; i < 100; i++) {
+            content.append("id").append(i).append("\tsome title\r\n");
+        }
+        Files.write(feed, content.toString().getBytes(StandardCharsets.UTF_8));
+        List<String> ids = new ArrayList<>();
+
+        // WHEN
+        try (MappedFeedReader reader = MappedFeedReader.open(feed, 7)) {
+            ByteBuffer window;
+            while ((window = reader.nextWindow()) != null) {
+                FeedTokenizer tokenizer = new FeedTokenizer(window);
+                while (tokenizer.next()) {
+                    ids.add(tokenizer.row().field(0));
+                }
+            }
+        } finally {
+            Files.delete(feed);
+        }
+
+        // THEN
+        Assertions.assertEquals(100, ids.size());
+        Assertions.assertEquals("id99", ids.get(99));
+    }
+
+    private FeedTokenizer tokenizerOf(String content) {
+        return new FeedTokenizer(ByteBuffer.wrap(content.getBytes(StandardCharsets.UTF_8)));
+    }
+}
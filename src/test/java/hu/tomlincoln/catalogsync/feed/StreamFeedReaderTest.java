@@ -0,0 +1,69 @@
+package hu.tomlincoln.catalogsync.feed;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+class StreamFeedReaderTest {
+
+    @Test
+    void checkWindowsEndOnLineBoundaries() throws IOException {
+        // GIVEN
+        String feed = "id\ttitle\r\n1\tone\r\n2\ttwo\r\n3\tthree";
+
+        // WHEN
+        List<String> windows = readWindows(feed, 8);
+
+        //THEN
+        Assertions.assertEquals(feed, String.join("", windows));
+        for (int i = 0; i < windows.size() - 1; i++) {
+            Assertions.assertTrue(windows.get(i).endsWith("\n"), windows.get(i));
+        }
+    }
+
+    @Test
+    void checkLongLineMakesWindowGrow() throws IOException {
+        // GIVEN
+        String longLine = "x".repeat(100);
+        String feed = "a\n" + longLine + "\nb\n";
+
+        // WHEN
+        List<String> windows = readWindows(feed, 4);
+
+        //THEN
+        Assertions.assertEquals(feed, String.join("", windows));
+        Assertions.assertTrue(windows.stream().anyMatch(window -> window.contains(longLine + "\n")));
+    }
+
+    @Test
+    void checkEmptyStreamHasNoWindow() throws IOException {
+        // GIVEN
+        StreamFeedReader underTest = new StreamFeedReader(new ByteArrayInputStream(new byte[0]), 8);
+
+        // WHEN
+        ByteBuffer window = underTest.nextWindow();
+
+        //THEN
+        Assertions.assertNull(window);
+    }
+
+    private static List<String> readWindows(String feed, int windowSize) throws IOException {
+        List<String> windows = new ArrayList<>();
+        try (StreamFeedReader reader = new StreamFeedReader(
+                new ByteArrayInputStream(feed.getBytes(StandardCharsets.UTF_8)), windowSize)) {
+            ByteBuffer window;
+            while ((window = reader.nextWindow()) != null) {
+                byte[] bytes = new byte[window.remaining()];
+                window.get(bytes);
+                windows.add(new String(bytes, StandardCharsets.UTF_8));
+            }
+        }
+        return windows;
+    }
+}
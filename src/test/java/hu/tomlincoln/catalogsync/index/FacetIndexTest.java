@@ -0,0 +1,97 @@
+package hu.tomlincoln.catalogsync.index;
+
+import hu.tomlincoln.catalogsync.domain.ProductFacet;
+import hu.tomlincoln.catalogsync.dto.FacetResultDTO;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.TreeSet;
+
+class FacetIndexTest {
+
+    private final FacetIndex underTest = new FacetIndex();
+
+    @Test
+    void queryAndsFacetsAndOrsValues() {
+        // GIVEN
+        underTest.put("1", values("Vinton", "543542", "IN_STOCK"));
+        underTest.put("2", values("Vinton", "543542", "OUT_OF_STOCK"));
+        underTest.put("3", values("Other", "543542", "IN_STOCK"));
+        underTest.put("4", values("Third", "111", "IN_STOCK"));
+        Map<ProductFacet, Collection<String>> filters = new EnumMap<>(ProductFacet.class);
+        filters.put(ProductFacet.BRAND, List.of("Vinton", "Other"));
+        filters.put(ProductFacet.AVAILABILITY, List.of("IN_STOCK"));
+
+        // WHEN
+        FacetResultDTO result = underTest.query(filters, 10);
+
+        //THEN
+        Assertions.assertEquals(2, result.getTotal());
+        Assertions.assertEquals(List.of("1", "3"), result.getIds());
+        Assertions.assertEquals(Map.of("Vinton", 1, "Other", 1), result.getCounts().get("brand"));
+        Assertions.assertEquals(Map.of("543542", 2), result.getCounts().get("googleProductCategory"));
+    }
+
+    @Test
+    void putReplacesAndRemoveForgetsProduct() {
+        // GIVEN
+        underTest.put("1", values("Vinton", "543542", "IN_STOCK"));
+        underTest.put("2", values("Vinton", "543542", "IN_STOCK"));
+
+        // WHEN
+        underTest.put("1", values("Other", "543542", "IN_STOCK"));
+        underTest.remove("2");
+        underTest.put("3", values("Vinton", "111", "IN_STOCK"));
+
+        //THEN
+        Map<ProductFacet, Collection<String>> filters = new EnumMap<>(ProductFacet.class);
+        filters.put(ProductFacet.BRAND, List.of("Vinton"));
+        FacetResultDTO result = underTest.query(filters, 10);
+        Assertions.assertEquals(List.of("3"), result.getIds());
+        Assertions.assertEquals(2, underTest.size());
+        Assertions.assertEquals(Map.of("Vinton", 1, "Other", 1), underTest.query(Map.of(), 0).getCounts().get("brand"));
+    }
+
+    @Test
+    void postingListKeepsOrdinalsInBothRepresentations() {
+        // GIVEN
+        Random random = new Random(42);
+        PostingList postingList = new PostingList();
+        TreeSet<Integer> expected = new TreeSet<>();
+
+        // WHEN
+        for (int i = 0; i < 20_000; i++) {
+            int ordinal = random.nextInt(i < 10_000 ? 1_000_000 : 20_000);
+            if (random.nextInt(4) == 0) {
+                postingList.remove(ordinal);
+                expected.remove(ordinal);
+            } else {
+                postingList.add(ordinal);
+                expected.add(ordinal);
+            }
+        }
+
+        //THEN
+        BitSet actual = new BitSet();
+        postingList.orInto(actual);
+        Assertions.assertEquals(expected.size(), postingList.size());
+        Assertions.assertEquals(expected.size(), actual.cardinality());
+        expected.forEach(ordinal -> Assertions.assertTrue(actual.get(ordinal)));
+    }
+
+    private static String[] values(String brand, String category, String availability) {
+        String[] values = new String[ProductFacet.values().length];
+        values[ProductFacet.BRAND.ordinal()] = brand;
+        values[ProductFacet.GOOGLE_PRODUCT_CATEGORY.ordinal()] = category;
+        values[ProductFacet.AVAILABILITY.ordinal()] = availability;
+        values[ProductFacet.CONDITION.ordinal()] = "NEW";
+        values[ProductFacet.AGE_GROUP.ordinal()] = "ADULT";
+        return values;
+    }
+}
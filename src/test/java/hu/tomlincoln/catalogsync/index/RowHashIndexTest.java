@@ -0,0 +1,124 @@
+package hu.tomlincoln.catalogsync.index;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+class RowHashIndexTest {
+
+    private final RowHashIndex underTest = new RowHashIndex();
+
+    @Test
+    void matchesOnlyTheLastPutLineHash() {
+        // GIVEN
+        underTest.put(1, 10);
+        underTest.put(2, 20);
+
+        // WHEN
+        underTest.put(1, 11);
+
+        //THEN
+        Assertions.assertTrue(underTest.matches(1, 11));
+        Assertions.assertFalse(underTest.matches(1, 10));
+        Assertions.assertTrue(underTest.matches(2, 20));
+        Assertions.assertFalse(underTest.matches(3, 0));
+        Assertions.assertEquals(2, underTest.size());
+    }
+
+    @Test
+    void removeKeepsCollidingEntriesReachable() {
+        // GIVEN
+        // Same low bits, so they all probe from the same slot
+        long[] idHashes = {1L << 40, 2L << 40, 3L << 40, 4L << 40};
+        for (long idHash : idHashes) {
+            underTest.put(idHash, idHash + 1);
+        }
+
+        // WHEN
+        underTest.remove(idHashes[1]);
+
+        //THEN
+        Assertions.assertFalse(underTest.matches(idHashes[1], idHashes[1] + 1));
+        Assertions.assertFalse(underTest.contains(idHashes[1]));
+        Assertions.assertTrue(underTest.contains(idHashes[3]));
+        Assertions.assertTrue(underTest.matches(idHashes[0], idHashes[0] + 1));
+        Assertions.assertTrue(underTest.matches(idHashes[2], idHashes[2] + 1));
+        Assertions.assertTrue(underTest.matches(idHashes[3], idHashes[3] + 1));
+        Assertions.assertEquals(3, underTest.size());
+    }
+
+    @Test
+    void behavesLikeHashMapUnderRandomPutsAndRemoves() {
+        // GIVEN
+        Random random = new Random(42);
+        Map<Long, Long> expected = new HashMap<>();
+
+        // WHEN
+        for (int i = 0; i < 100_000; i++) {
+            // Few distinct ids, so removes hit and the table grows past its initial capacity
+            long idHash = random.nextInt(5000) * 0x9e3779b97f4a7c15L;
+            if (random.nextInt(3) == 0) {
+                underTest.remove(idHash);
+                expected.remove(idHash);
+            } else {
+                long lineHash = random.nextLong();
+                underTest.put(idHash, lineHash);
+                expected.put(idHash, lineHash);
+            }
+        }
+
+        //THEN
+        Assertions.assertEquals(expected.size(), underTest.size());
+        expected.forEach((idHash, lineHash) -> Assertions.assertTrue(underTest.matches(idHash, lineHash)));
+    }
+
+    @Test
+    void openRestoresEntriesOfCleanlyClosedFile(@TempDir Path directory) throws IOException {
+        // GIVEN
+        Path file = directory.resolve("rowhash");
+        try (RowHashIndex index = RowHashIndex.open(file, 7)) {
+            // Enough to grow the file a few times
+            for (long i = 1; i <= 10_000; i++) {
+                index.put(i * 0x9e3779b97f4a7c15L, i);
+            }
+            index.remove(0x9e3779b97f4a7c15L);
+        }
+
+        // WHEN
+        try (RowHashIndex restored = RowHashIndex.open(file, 7)) {
+
+            //THEN
+            Assertions.assertTrue(restored.isRestored());
+            Assertions.assertEquals(9_999, restored.size());
+            Assertions.assertFalse(restored.contains(0x9e3779b97f4a7c15L));
+            for (long i = 2; i <= 10_000; i++) {
+                Assertions.assertTrue(restored.matches(i * 0x9e3779b97f4a7c15L, i));
+            }
+        }
+    }
+
+    @Test
+    void openStartsEmptyWithAnotherTokenOrWhileTheFileIsOpen(@TempDir Path directory) throws IOException {
+        // GIVEN
+        Path file = directory.resolve("rowhash");
+        try (RowHashIndex index = RowHashIndex.open(file, 7)) {
+            index.put(1, 10);
+            Assertions.assertThrows(IOException.class, () -> RowHashIndex.open(file, 7));
+        }
+
+        // WHEN
+        try (RowHashIndex reopened = RowHashIndex.open(file, 8)) {
+
+            //THEN
+            Assertions.assertFalse(reopened.isRestored());
+            Assertions.assertEquals(0, reopened.size());
+            Assertions.assertFalse(reopened.contains(1));
+        }
+    }
+}
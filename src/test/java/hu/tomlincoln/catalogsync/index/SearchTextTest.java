@@ -0,0 +1,36 @@
+package hu.tomlincoln.catalogsync.index;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+class SearchTextTest {
+
+    @Test
+    void normalizeDecodesEntitiesAndDropsTags() {
+        // GIVEN
+        String text = "<p>Gy&ouml;ny&ouml;r&#369; k&eacute;pesk&ouml;nyv</p>&ndash;<br/>AT&amp;T";
+
+        // WHEN
+        String normalized = SearchText.normalize(text);
+
+        //THEN
+        Assertions.assertEquals(" Gyönyörű képeskönyv – AT&T", normalized);
+    }
+
+    @Test
+    void toMatchQueryQuotesEveryWord() {
+        // GIVEN
+        String text = "k&eacute;pes \"könyv\" OR title:x* -";
+
+        // WHEN
+        String matchQuery = SearchText.toMatchQuery(text);
+
+        //THEN
+        Assertions.assertEquals("\"képes\" \"könyv\" \"OR\" \"title\" \"x\"", matchQuery);
+    }
+
+    @Test
+    void toMatchQueryIsEmptyWithoutWords() {
+        Assertions.assertEquals("", SearchText.toMatchQuery(" -*- "));
+    }
+}
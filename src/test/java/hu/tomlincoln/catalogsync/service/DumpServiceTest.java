@@ -0,0 +1,55 @@
+package hu.tomlincoln.catalogsync.service;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.annotation.DirtiesContext;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+
+@SpringBootTest
+@DirtiesContext(classMode = DirtiesContext.ClassMode.AFTER_EACH_TEST_METHOD)
+class DumpServiceTest {
+
+    @Autowired
+    private DumpService underTest;
+
+    @Autowired
+    private SynchronizerService synchronizerService;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Test
+    void dumpAllWritesEveryProduct() throws IOException {
+        // GIVEN
+        synchronizerService.synchronize("unit-test-2-valid.txt");
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+
+        // WHEN
+        underTest.dumpAll(outputStream);
+
+        //THEN
+        JsonNode dump = objectMapper.readTree(outputStream.toByteArray());
+        Assertions.assertTrue(dump.isArray());
+        Assertions.assertEquals(2, dump.size());
+        Assertions.assertEquals("12345ABCDE", dump.get(0).get("id").asText());
+        Assertions.assertFalse(dump.get(0).has("contentHash"));
+    }
+
+    @Test
+    void dumpAllWritesEmptyArrayForEmptyCatalog() throws IOException {
+        // GIVEN
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+
+        // WHEN
+        underTest.dumpAll(outputStream);
+
+        //THEN
+        Assertions.assertEquals("[]", outputStream.toString());
+    }
+}
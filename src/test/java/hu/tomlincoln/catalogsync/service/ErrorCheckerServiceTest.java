@@ -51,6 +51,22 @@ class ErrorCheckerServiceTest {
         Assertions.assertEquals(1, invalidProducts.size());
     }
 
+    @Test
+    void checkIfArrayIsTooShortForTheEnumFields() {
+        // GIVEN
+        String[] testProduct = {"12345ABCDE", "Some Title"};
+        List<InvalidProductDTO> invalidProducts = new LinkedList<>();
+
+        // WHEN
+        boolean hasError = underTest.hasError(testProduct, invalidProducts);
+
+        // THEN
+        Assertions.assertTrue(hasError);
+        Assertions.assertEquals(1, invalidProducts.size());
+        Assertions.assertEquals("did not find all parameters (should be 12)", invalidProducts.get(0).getErrorMessage());
+        Assertions.assertEquals("12345ABCDE\tSome Title", invalidProducts.get(0).getProductString());
+    }
+
     @Test
     void checkRemoveParenthesis() {
         // GIVEN
@@ -0,0 +1,85 @@
+package hu.tomlincoln.catalogsync.service;
+
+import hu.tomlincoln.catalogsync.config.SyncProperties;
+import hu.tomlincoln.catalogsync.dto.InvalidProductDTO;
+import hu.tomlincoln.catalogsync.feed.FeedRow;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.util.unit.DataSize;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.stream.Collectors;
+
+class FeedValidationServiceTest {
+
+    private static final String VALID_ROW = "%s\tSome Title\tSome description\tin stock\tnew\t100 HUF\t100 HUF\t"
+            + "https://www.asdasd.hu/valami.html\tSome Brand\thttps://www.asdasd.hu/valami2.jpg\tADULT\t12345\n";
+    private static final String INVALID_ROW = VALID_ROW.replace("100 HUF\t100 HUF", "1H00 H1F\t100 HUF");
+
+    private FeedValidationService underTest;
+
+    @BeforeEach
+    void setUp() {
+        SyncProperties syncProperties = new SyncProperties();
+        syncProperties.setParallelism(4);
+        // Force a lot of small segments so the rows are spread between the threads
+        syncProperties.setSegmentSize(DataSize.ofBytes(256));
+        underTest = new FeedValidationService(new ErrorCheckerService(), syncProperties);
+    }
+
+    @AfterEach
+    void tearDown() {
+        underTest.shutdown();
+    }
+
+    @Test
+    void validateKeepsFileOrder() {
+        // GIVEN
+        StringBuilder feed = new StringBuilder();
+        for (int i = 0; i < 500; i++) {
+            feed.append(String.format(i % 5 == 0 ? INVALID_ROW : VALID_ROW, "id" + i));
+        }
+
+        // WHEN
+        FeedValidationService.ValidationResult result =
+                underTest.validate(ByteBuffer.wrap(feed.toString().getBytes(StandardCharsets.UTF_8)));
+
+        // THEN
+        Assertions.assertEquals(100, result.getSkipped());
+        Assertions.assertEquals(400, result.getValidRows().size());
+        List<String> invalidIds = result.getInvalidProducts().stream()
+                .map(InvalidProductDTO::getProductString)
+                .map(s -> s.split("\t")[0])
+                .collect(Collectors.toList());
+        Assertions.assertEquals(SynchronizerService.MAX_INVALID_REPORTABLE, invalidIds.size());
+        for (int i = 0; i < invalidIds.size(); i++) {
+            Assertions.assertEquals("id" + i * 5, invalidIds.get(i));
+        }
+        List<FeedRow> validRows = result.getValidRows();
+        for (int i = 1; i < validRows.size(); i++) {
+            int previous = Integer.parseInt(validRows.get(i - 1).field(0).substring(2));
+            int current = Integer.parseInt(validRows.get(i).field(0).substring(2));
+            Assertions.assertTrue(previous < current);
+        }
+    }
+
+    @Test
+    void validateKeepsKnownValidRowsWithoutChecking() {
+        // GIVEN
+        String feed = String.format(INVALID_ROW, "known") + String.format(INVALID_ROW, "unknown");
+
+        // WHEN
+        FeedValidationService.ValidationResult result = underTest.validate(
+                ByteBuffer.wrap(feed.getBytes(StandardCharsets.UTF_8)), row -> row.field(0).equals("known"));
+
+        // THEN
+        Assertions.assertEquals(1, result.getSkipped());
+        Assertions.assertEquals(List.of("known"), result.getValidRows().stream()
+                .map(row -> row.field(0))
+                .collect(Collectors.toList()));
+    }
+}
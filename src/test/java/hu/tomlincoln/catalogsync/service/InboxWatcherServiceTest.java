@@ -0,0 +1,61 @@
+package hu.tomlincoln.catalogsync.service;
+
+import hu.tomlincoln.catalogsync.dto.SyncJobDTO;
+import hu.tomlincoln.catalogsync.dto.SyncJobStatus;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Optional;
+
+@SpringBootTest
+@DirtiesContext(classMode = DirtiesContext.ClassMode.AFTER_EACH_TEST_METHOD)
+class InboxWatcherServiceTest {
+
+    @TempDir
+    static Path inbox;
+
+    @Autowired
+    private SyncJobService syncJobService;
+
+    @DynamicPropertySource
+    static void inboxProperties(DynamicPropertyRegistry registry) {
+        registry.add("catalogsync.inbox.directory", () -> inbox.toString());
+        registry.add("catalogsync.inbox.debounce", () -> "200ms");
+    }
+
+    @Test
+    void dropsIntoInboxAreSynchronized() throws IOException, InterruptedException {
+        // GIVEN
+        Path feed = inbox.resolve("supplier-feed.txt");
+
+        // WHEN
+        Files.copy(Paths.get("unit-test-2-valid.txt"), feed);
+
+        //THEN
+        SyncJobDTO job = awaitDoneJob(feed.toString());
+        Assertions.assertEquals(2, job.getReport().getAdded());
+    }
+
+    private SyncJobDTO awaitDoneJob(String feed) throws InterruptedException {
+        for (int i = 0; i < 300; i++) {
+            Optional<SyncJobDTO> job = syncJobService.getLatestJobs().stream()
+                    .filter(j -> j.getFeed().equals(feed))
+                    .findFirst();
+            if (job.isPresent() && job.get().getStatus() == SyncJobStatus.DONE) {
+                return job.get();
+            }
+            Thread.sleep(100);
+        }
+        throw new AssertionError("Feed " + feed + " was not synchronized");
+    }
+}
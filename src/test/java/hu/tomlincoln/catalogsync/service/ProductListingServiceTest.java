@@ -0,0 +1,65 @@
+package hu.tomlincoln.catalogsync.service;
+
+import hu.tomlincoln.catalogsync.domain.AgeGroup;
+import hu.tomlincoln.catalogsync.domain.ProductAvailability;
+import hu.tomlincoln.catalogsync.dto.ProductFilterDTO;
+import hu.tomlincoln.catalogsync.dto.ProductPageDTO;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.annotation.DirtiesContext;
+
+@SpringBootTest
+@DirtiesContext(classMode = DirtiesContext.ClassMode.AFTER_CLASS)
+class ProductListingServiceTest {
+
+    @Autowired
+    private ProductListingService underTest;
+
+    @Autowired
+    private SynchronizerService synchronizerService;
+
+    @BeforeEach
+    void setUp() {
+        synchronizerService.synchronize("unit-test-2-valid.txt");
+    }
+
+    @Test
+    void listPagesByIdCursor() {
+        // GIVEN
+        ProductFilterDTO filter = new ProductFilterDTO.Builder().build();
+
+        // WHEN
+        ProductPageDTO firstPage = underTest.list(filter, null, 1);
+        ProductPageDTO secondPage = underTest.list(filter, firstPage.getNextCursor(), 1);
+
+        //THEN
+        Assertions.assertEquals("12345ABCDE", firstPage.getProducts().get(0).getId());
+        Assertions.assertEquals("12345ABCDE", firstPage.getNextCursor());
+        Assertions.assertEquals("12346ABCDE", secondPage.getProducts().get(0).getId());
+        Assertions.assertNull(secondPage.getNextCursor());
+    }
+
+    @Test
+    void listAppliesFilters() {
+        // GIVEN
+        ProductFilterDTO matching = new ProductFilterDTO.Builder()
+                .withAvailability(ProductAvailability.IN_STOCK)
+                .withBrand("Some Brand")
+                .withAgeGroup(AgeGroup.ADULT)
+                .withGoogleProductCategory("12345")
+                .build();
+        ProductFilterDTO notMatching = new ProductFilterDTO.Builder().withAgeGroup(AgeGroup.KIDS).build();
+
+        // WHEN
+        ProductPageDTO matchingPage = underTest.list(matching, null, 100);
+        ProductPageDTO notMatchingPage = underTest.list(notMatching, null, 100);
+
+        //THEN
+        Assertions.assertEquals(2, matchingPage.getProducts().size());
+        Assertions.assertNull(matchingPage.getNextCursor());
+        Assertions.assertTrue(notMatchingPage.getProducts().isEmpty());
+    }
+}
@@ -0,0 +1,94 @@
+package hu.tomlincoln.catalogsync.service;
+
+import hu.tomlincoln.catalogsync.domain.Product;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.annotation.DirtiesContext;
+
+import java.util.Optional;
+
+@SpringBootTest
+@DirtiesContext(classMode = DirtiesContext.ClassMode.AFTER_EACH_TEST_METHOD)
+class ProductLookupServiceTest {
+
+    @Autowired
+    private ProductLookupService underTest;
+
+    @Autowired
+    private SynchronizerService synchronizerService;
+
+    @Test
+    void findByIdSeesAddedProduct() {
+        // GIVEN
+        underTest.findById("12345ABCDE");
+
+        // WHEN
+        synchronizerService.synchronize("unit-test-1-valid.txt");
+        Optional<Product> product = underTest.findById("12345ABCDE");
+
+        //THEN
+        Assertions.assertTrue(product.isPresent());
+    }
+
+    @Test
+    void findByIdSeesUpdatedProduct() {
+        // GIVEN
+        synchronizerService.synchronize("unit-test-1-valid.txt");
+        underTest.findById("12345ABCDE");
+
+        // WHEN
+        synchronizerService.synchronize("unit-test-1-valid-updated.txt");
+        Optional<Product> product = underTest.findById("12345ABCDE");
+
+        //THEN
+        Assertions.assertEquals("Some descripppption which is longer", product.orElseThrow().getDescription());
+    }
+
+    @Test
+    void findByIdDoesNotSeeDeletedProduct() {
+        // GIVEN
+        synchronizerService.synchronize("unit-test-2-valid.txt");
+        underTest.findById("12346ABCDE");
+
+        // WHEN
+        synchronizerService.synchronize("unit-test-1-valid.txt");
+        Optional<Product> product = underTest.findById("12346ABCDE");
+
+        //THEN
+        Assertions.assertTrue(product.isEmpty());
+    }
+
+    @Test
+    void findByIdReadsRetainedVersions() {
+        // GIVEN
+        synchronizerService.synchronize("unit-test-2-valid.txt");
+        synchronizerService.synchronize("unit-test-1-valid-updated.txt");
+
+        // WHEN
+        Optional<Product> first = underTest.findById("12345ABCDE", 1);
+        Optional<Product> deletedInSecond = underTest.findById("12346ABCDE", 1);
+        Optional<Product> second = underTest.findById("12345ABCDE", 2);
+
+        //THEN
+        Assertions.assertNotEquals("Some descripppption which is longer", first.orElseThrow().getDescription());
+        Assertions.assertTrue(deletedInSecond.isPresent());
+        Assertions.assertEquals("Some descripppption which is longer", second.orElseThrow().getDescription());
+        Assertions.assertTrue(underTest.findById("12346ABCDE").isEmpty());
+    }
+
+    @Test
+    void findByIdServesRepeatedReadsFromCache() {
+        // GIVEN
+        synchronizerService.synchronize("unit-test-1-valid.txt");
+
+        // WHEN
+        underTest.findById("12345ABCDE");
+        underTest.findById("12345ABCDE");
+
+        //THEN
+        Assertions.assertEquals(1, underTest.getStats().getHitCount());
+        Assertions.assertEquals(1, underTest.getStats().getMissCount());
+    }
+}
@@ -0,0 +1,48 @@
+package hu.tomlincoln.catalogsync.service;
+
+import hu.tomlincoln.catalogsync.dto.SearchHitDTO;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.annotation.DirtiesContext;
+
+import java.util.List;
+
+@SpringBootTest
+@DirtiesContext(classMode = DirtiesContext.ClassMode.AFTER_EACH_TEST_METHOD)
+class SearchServiceTest {
+
+    @Autowired
+    private SearchService underTest;
+
+    @Autowired
+    private SynchronizerService synchronizerService;
+
+    @Test
+    void searchFindsAddedProducts() {
+        // GIVEN
+        synchronizerService.synchronize("unit-test-2-valid.txt");
+
+        // WHEN
+        List<SearchHitDTO> hits = underTest.search("tittle", 10);
+
+        //THEN
+        Assertions.assertEquals(1, hits.size());
+        Assertions.assertEquals("12346ABCDE", hits.get(0).getId());
+    }
+
+    @Test
+    void searchFollowsUpdatesAndDeletes() {
+        // GIVEN
+        synchronizerService.synchronize("unit-test-2-valid.txt");
+
+        // WHEN
+        synchronizerService.synchronize("unit-test-1-valid-updated.txt");
+
+        //THEN
+        Assertions.assertEquals(1, underTest.search("DESCRIPPPPTION", 10).size());
+        Assertions.assertTrue(underTest.search("description", 10).isEmpty());
+        Assertions.assertTrue(underTest.search("tittle", 10).isEmpty());
+    }
+}
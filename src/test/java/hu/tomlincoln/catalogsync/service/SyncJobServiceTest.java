@@ -0,0 +1,81 @@
+package hu.tomlincoln.catalogsync.service;
+
+import hu.tomlincoln.catalogsync.dto.SyncJobDTO;
+import hu.tomlincoln.catalogsync.dto.SyncJobStatus;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.annotation.DirtiesContext;
+
+import java.util.concurrent.RejectedExecutionException;
+
+// One job runs and one waits, the next one is rejected
+@SpringBootTest(properties = "catalogsync.sync.job-queue-capacity=1")
+@DirtiesContext(classMode = DirtiesContext.ClassMode.AFTER_EACH_TEST_METHOD)
+class SyncJobServiceTest {
+
+    @Autowired
+    private SyncJobService underTest;
+
+    @Test
+    void submitCoalescesSameFeed() throws InterruptedException {
+        // GIVEN
+        SyncJobDTO first = underTest.submit("file1.txt");
+
+        // WHEN
+        SyncJobDTO second = underTest.submit("file1.txt");
+
+        //THEN
+        Assertions.assertEquals(first.getId(), second.getId());
+        SyncJobDTO finished = awaitJob(first.getId());
+        Assertions.assertEquals(SyncJobStatus.DONE, finished.getStatus());
+        Assertions.assertTrue(finished.getReport().getAdded() > 0);
+    }
+
+    @Test
+    void submitStartsNewJobAfterPreviousFinished() throws InterruptedException {
+        // GIVEN
+        SyncJobDTO first = underTest.submit("unit-test-1-valid.txt");
+        awaitJob(first.getId());
+
+        // WHEN
+        SyncJobDTO second = underTest.submit("unit-test-1-valid.txt");
+
+        //THEN
+        Assertions.assertNotEquals(first.getId(), second.getId());
+        Assertions.assertEquals(1, awaitJob(second.getId()).getReport().getNotChanged());
+    }
+
+    @Test
+    void submitDoesNotKeepRejectedJob() throws InterruptedException {
+        // GIVEN
+        SyncJobDTO running = underTest.submit("file1.txt");
+        SyncJobDTO queued = underTest.submit("unit-test-1-valid.txt");
+        Assertions.assertThrows(RejectedExecutionException.class, () -> underTest.submit("unit-test-2-valid.txt"));
+        awaitJob(running.getId());
+        awaitJob(queued.getId());
+
+        // WHEN
+        SyncJobDTO resubmitted = underTest.submit("unit-test-2-valid.txt");
+
+        //THEN
+        Assertions.assertEquals(SyncJobStatus.DONE, awaitJob(resubmitted.getId()).getStatus());
+    }
+
+    @Test
+    void getJobIsEmptyForUnknownId() {
+        Assertions.assertTrue(underTest.getJob("unknown").isEmpty());
+    }
+
+    private SyncJobDTO awaitJob(String id) throws InterruptedException {
+        for (int i = 0; i < 600; i++) {
+            SyncJobDTO job = underTest.getJob(id).orElseThrow();
+            if (job.getStatus() == SyncJobStatus.DONE || job.getStatus() == SyncJobStatus.FAILED) {
+                return job;
+            }
+            Thread.sleep(100);
+        }
+        throw new AssertionError("Job " + id + " did not finish");
+    }
+}
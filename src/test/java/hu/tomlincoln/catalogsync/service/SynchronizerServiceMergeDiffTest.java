@@ -0,0 +1,66 @@
+package hu.tomlincoln.catalogsync.service;
+
+import hu.tomlincoln.catalogsync.dto.ReportDTO;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.annotation.DirtiesContext;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+
+// Small enough to spill the larger feeds in a few dozen runs
+@SpringBootTest(properties = {"catalogsync.sync.diff-mode=MERGE", "catalogsync.sync.sort-buffer-size=256KB",
+        "catalogsync.sync.chunk-size=100"})
+@DirtiesContext(classMode = DirtiesContext.ClassMode.AFTER_EACH_TEST_METHOD)
+class SynchronizerServiceMergeDiffTest {
+
+    @Autowired
+    private SynchronizerService underTest;
+
+    @Test
+    void synchronizeGivesSameReportsAsStagedDiff() {
+        // GIVEN
+        underTest.synchronize("file1.txt");
+        underTest.synchronize("file2.txt");
+
+        // WHEN
+        ReportDTO reportDto = underTest.synchronize("file3.txt");
+
+        //THEN
+        Assertions.assertEquals(0, reportDto.getAdded());
+        Assertions.assertEquals(0, reportDto.getUpdated());
+        Assertions.assertEquals(9122, reportDto.getNotChanged());
+        Assertions.assertEquals(878, reportDto.getDeleted());
+    }
+
+    @Test
+    void synchronizeKeepsFirstOccurrenceOfDuplicateId() {
+        // GIVEN
+        underTest.synchronize("unit-test-2-valid-1-duplicate.txt");
+
+        // WHEN
+        ReportDTO reportDto = underTest.synchronize("unit-test-2-valid.txt");
+
+        //THEN
+        Assertions.assertEquals(0, reportDto.getUpdated());
+        Assertions.assertEquals(2, reportDto.getNotChanged());
+    }
+
+    @Test
+    void synchronizeUpdatesAndDeletes() throws IOException {
+        // GIVEN
+        underTest.synchronize("unit-test-2-valid.txt");
+
+        // WHEN
+        ReportDTO reportDto = underTest.synchronize(Files.newInputStream(Paths.get("unit-test-1-valid-updated.txt")));
+
+        //THEN
+        Assertions.assertEquals(1, reportDto.getUpdated());
+        Assertions.assertEquals(1, reportDto.getDeleted());
+        Assertions.assertEquals(0, reportDto.getAdded());
+    }
+
+}
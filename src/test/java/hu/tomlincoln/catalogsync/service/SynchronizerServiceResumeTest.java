@@ -0,0 +1,187 @@
+package hu.tomlincoln.catalogsync.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import hu.tomlincoln.catalogsync.domain.Product;
+import hu.tomlincoln.catalogsync.domain.SyncCheckpoint;
+import hu.tomlincoln.catalogsync.dto.ReportDTO;
+import hu.tomlincoln.catalogsync.feed.FeedFingerprint;
+import hu.tomlincoln.catalogsync.repository.FeedSyncRecordRepository;
+import hu.tomlincoln.catalogsync.repository.ProductRepository;
+import hu.tomlincoln.catalogsync.repository.SyncCheckpointRepository;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.test.annotation.DirtiesContext;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.attribute.FileTime;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Optional;
+
+// Small enough to write the feed in many chunks over a few windows
+@SpringBootTest(properties = {"catalogsync.sync.chunk-size=100", "catalogsync.sync.window-size=256KB"})
+@DirtiesContext(classMode = DirtiesContext.ClassMode.AFTER_EACH_TEST_METHOD)
+class SynchronizerServiceResumeTest {
+
+    @Autowired
+    private SynchronizerService underTest;
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Autowired
+    private SyncCheckpointRepository syncCheckpointRepository;
+
+    @Autowired
+    private FeedSyncRecordRepository feedSyncRecordRepository;
+
+    @Autowired
+    private FailingListener failingListener;
+
+    @Autowired
+    private CatalogVersionService catalogVersionService;
+
+    @Autowired
+    private DumpService dumpService;
+
+    @Autowired
+    private FacetIndexService facetIndexService;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Test
+    void synchronizeContinuesFromCheckpointAfterFailure() throws IOException {
+        // GIVEN
+        Path feed = Paths.get("file1.txt");
+        String source = feed.toAbsolutePath().normalize().toString();
+        failingListener.failAfter = 3000;
+        Assertions.assertThrows(IllegalStateException.class, () -> underTest.synchronize("file1.txt"));
+        Optional<SyncCheckpoint> checkpoint = syncCheckpointRepository.find(source, FeedFingerprint.of(feed));
+        Assertions.assertTrue(checkpoint.isPresent());
+        Assertions.assertTrue(checkpoint.get().getPosition() > 0);
+
+        // WHEN
+        ReportDTO reportDto = underTest.synchronize("file1.txt");
+
+        //THEN
+        Assertions.assertEquals(8723, reportDto.getAdded());
+        Assertions.assertEquals(0, reportDto.getUpdated());
+        Assertions.assertEquals(0, reportDto.getNotChanged());
+        Assertions.assertEquals(8723, productRepository.count());
+        // Nothing written before the failure was written again
+        Assertions.assertEquals(8723, failingListener.upserted);
+        Assertions.assertFalse(syncCheckpointRepository.find(source, FeedFingerprint.of(feed)).isPresent());
+    }
+
+    @Test
+    void failedSynchronizationIsNotPublished() throws IOException {
+        // GIVEN
+        underTest.synchronize("file1.txt");
+        failingListener.failAfter = 8723 + 500;
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+
+        // WHEN
+        Assertions.assertThrows(IllegalStateException.class, () -> underTest.synchronize("file2.txt"));
+        dumpService.dumpAll(outputStream);
+
+        //THEN
+        Assertions.assertEquals(1, catalogVersionService.getPublished());
+        Assertions.assertTrue(productRepository.count() > 8723);
+        // The products added before the failure are only in the draft
+        Assertions.assertEquals(8723, objectMapper.readTree(outputStream.toByteArray()).size());
+        Assertions.assertEquals(8723, facetIndexService.query(Collections.emptyMap(), 0).getTotal());
+    }
+
+    @Test
+    void synchronizationAfterFailureStartsFromPublishedVersion() throws IOException {
+        // GIVEN
+        underTest.synchronize("file1.txt");
+        failingListener.failAfter = 8723 + 500;
+        Assertions.assertThrows(IllegalStateException.class, () -> underTest.synchronize("file2.txt"));
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+
+        // WHEN
+        ReportDTO reportDto = underTest.synchronize("file1.txt");
+        dumpService.dumpAll(outputStream);
+
+        //THEN
+        Assertions.assertEquals(2, catalogVersionService.getPublished());
+        // What the failed sync wrote in the draft was never published, so nothing changed
+        Assertions.assertEquals(0, reportDto.getAdded());
+        Assertions.assertEquals(0, reportDto.getUpdated());
+        Assertions.assertEquals(0, reportDto.getDeleted());
+        Assertions.assertEquals(8723, reportDto.getNotChanged());
+        Assertions.assertEquals(8723, productRepository.count());
+        Assertions.assertEquals(8723, objectMapper.readTree(outputStream.toByteArray()).size());
+        Assertions.assertEquals(8723, facetIndexService.query(Collections.emptyMap(), 0).getTotal());
+    }
+
+    @Test
+    void feedChangedDuringSynchronizationIsNotRecorded(@TempDir Path directory) throws IOException {
+        // GIVEN
+        Path feed = Files.copy(Paths.get("file1.txt"), directory.resolve("feed.txt"));
+        String source = feed.toAbsolutePath().normalize().toString();
+        long size = Files.size(feed);
+        long modifiedAt = Files.getLastModifiedTime(feed).toMillis();
+        long touchedAt = modifiedAt + 60_000;
+        failingListener.onUpserted = () -> {
+            failingListener.onUpserted = () -> { };
+            try {
+                Files.setLastModifiedTime(feed, FileTime.fromMillis(touchedAt));
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        };
+
+        // WHEN
+        ReportDTO reportDto = underTest.synchronize(feed.toString());
+
+        //THEN
+        Assertions.assertEquals(8723, reportDto.getAdded());
+        Assertions.assertFalse(feedSyncRecordRepository.isRecorded(source, size, modifiedAt));
+        Assertions.assertFalse(feedSyncRecordRepository.isRecorded(source, size, touchedAt));
+        Assertions.assertFalse(syncCheckpointRepository.exists(source, size, modifiedAt));
+    }
+
+    @TestConfiguration
+    static class FailingListenerConfiguration {
+
+        @Bean
+        FailingListener failingListener() {
+            return new FailingListener();
+        }
+    }
+
+    /** Fails once after being told about this many upserted products, like a crash right after a commit. */
+    static class FailingListener implements CatalogChangeListener {
+
+        private int failAfter = -1;
+        private int upserted;
+        private Runnable onUpserted = () -> { };
+
+        @Override
+        public void productsUpserted(Collection<Product> products) {
+            upserted += products.size();
+            onUpserted.run();
+            if (failAfter >= 0 && upserted >= failAfter) {
+                failAfter = -1;
+                throw new IllegalStateException("Failing after " + upserted + " products");
+            }
+        }
+
+        @Override
+        public void productsDeleted(Collection<String> ids) {
+        }
+    }
+}
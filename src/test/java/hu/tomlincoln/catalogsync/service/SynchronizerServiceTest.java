@@ -1,14 +1,33 @@
 package hu.tomlincoln.catalogsync.service;
 
 import hu.tomlincoln.catalogsync.dto.ReportDTO;
+import hu.tomlincoln.catalogsync.repository.FeedSyncRecordRepository;
 import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.function.Executable;
+import org.junit.jupiter.api.io.TempDir;
 import org.mockito.junit.jupiter.MockitoExtension;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.test.annotation.DirtiesContext;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.attribute.FileTime;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
 @SpringBootTest
 @ExtendWith(MockitoExtension.class)
 @DirtiesContext(classMode = DirtiesContext.ClassMode.AFTER_EACH_TEST_METHOD)
@@ -17,6 +36,9 @@ class SynchronizerServiceTest {
     @Autowired
     private SynchronizerService underTest;
 
+    @Autowired
+    private FeedSyncRecordRepository feedSyncRecordRepository;
+
     @Test
     void synchronizeGivesEmptyReportOnIOException() {
         // GIVEN
@@ -90,6 +112,63 @@ class SynchronizerServiceTest {
         Assertions.assertEquals(1, reportDto.getUpdated());
     }
 
+    @Test
+    void synchronizeStoresUpdatedValues() throws IOException {
+        // GIVEN
+        underTest.synchronize("unit-test-1-valid.txt");
+        underTest.synchronize("unit-test-1-valid-updated.txt");
+
+        // WHEN
+        // Read as a stream, so the unchanged feed is diffed against the stored values instead of being skipped
+        ReportDTO reportDto = underTest.synchronize(Files.newInputStream(Paths.get("unit-test-1-valid-updated.txt")));
+
+        //THEN
+        Assertions.assertEquals(0, reportDto.getUpdated());
+        Assertions.assertEquals(1, reportDto.getNotChanged());
+    }
+
+    @Test
+    void synchronizeStreamIsRejectedWhileAnotherSyncRuns() throws InterruptedException {
+        // GIVEN
+        CountDownLatch reading = new CountDownLatch(1);
+        CountDownLatch sent = new CountDownLatch(1);
+        InputStream slowBody = new InputStream() {
+            @Override
+            public int read() throws IOException {
+                reading.countDown();
+                try {
+                    sent.await();
+                } catch (InterruptedException e) {
+                    throw new InterruptedIOException();
+                }
+                return -1;
+            }
+        };
+        CompletableFuture<ReportDTO> running = CompletableFuture.supplyAsync(() -> underTest.synchronize(slowBody));
+        reading.await();
+
+        // WHEN
+        Executable secondUpload = () -> underTest.synchronize(Files.newInputStream(Paths.get("unit-test-1-valid.txt")));
+
+        //THEN
+        Assertions.assertThrows(RejectedExecutionException.class, secondUpload);
+        sent.countDown();
+        running.join();
+    }
+
+    @Test
+    void synchronizeKeepsFirstOccurrenceOfDuplicateId() {
+        // GIVEN
+        underTest.synchronize("unit-test-2-valid-1-duplicate.txt");
+
+        // WHEN
+        ReportDTO reportDto = underTest.synchronize("unit-test-2-valid.txt");
+
+        //THEN
+        Assertions.assertEquals(0, reportDto.getUpdated());
+        Assertions.assertEquals(2, reportDto.getNotChanged());
+    }
+
     @Test
     void synchronizeNotChangesSame() {
         // GIVEN
@@ -136,4 +215,104 @@ class SynchronizerServiceTest {
         Assertions.assertEquals(13, reportDto.getSkipped());
     }
 
-}
\ No newline at end of file
+    @Test
+    void synchronizeReadsGzipStream() throws IOException {
+        // GIVEN
+        ByteArrayOutputStream compressed = new ByteArrayOutputStream();
+        try (GZIPOutputStream gzip = new GZIPOutputStream(compressed)) {
+            gzip.write(Files.readAllBytes(Paths.get("unit-test-1-valid-2-invalid.txt")));
+        }
+
+        // WHEN
+        ReportDTO reportDto = underTest.synchronize(
+                new GZIPInputStream(new ByteArrayInputStream(compressed.toByteArray())));
+
+        //THEN
+        Assertions.assertEquals(2, reportDto.getInvalidProducts().size());
+        Assertions.assertEquals(2, reportDto.getSkipped());
+        Assertions.assertEquals(1, reportDto.getAdded());
+    }
+
+    @Test
+    void synchronizeReadsGzipFile(@TempDir Path directory) throws IOException {
+        // GIVEN
+        Path feed = directory.resolve("unit-test-1-valid-2-invalid.txt.gz");
+        try (GZIPOutputStream gzip = new GZIPOutputStream(Files.newOutputStream(feed))) {
+            gzip.write(Files.readAllBytes(Paths.get("unit-test-1-valid-2-invalid.txt")));
+        }
+
+        // WHEN
+        ReportDTO reportDto = underTest.synchronize(feed.toString());
+
+        //THEN
+        Assertions.assertEquals(2, reportDto.getInvalidProducts().size());
+        Assertions.assertEquals(2, reportDto.getSkipped());
+        Assertions.assertEquals(1, reportDto.getAdded());
+    }
+
+    @Test
+    void synchronizeSkipsUnchangedFeedWithSameReport() throws IOException {
+        // GIVEN
+        ReportDTO firstReport = underTest.synchronize("unit-test-1-valid-2-invalid.txt");
+
+        // WHEN
+        ReportDTO reportDto = underTest.synchronize("unit-test-1-valid-2-invalid.txt");
+
+        //THEN
+        Assertions.assertEquals(0, reportDto.getAdded());
+        Assertions.assertEquals(1, reportDto.getNotChanged());
+        Assertions.assertEquals(2, reportDto.getSkipped());
+        Assertions.assertEquals(firstReport.getInvalidProducts().get(1).getProductString(),
+                reportDto.getInvalidProducts().get(1).getProductString());
+        Assertions.assertEquals(firstReport.getInvalidProducts().get(1).getErrorMessage(),
+                reportDto.getInvalidProducts().get(1).getErrorMessage());
+    }
+
+    @Test
+    void synchronizeReadsFeedChangedWithSameSizeAndTime(@TempDir Path directory) throws IOException {
+        // GIVEN
+        Path feed = Files.copy(Paths.get("unit-test-1-valid.txt"), directory.resolve("feed.txt"));
+        FileTime modifiedAt = Files.getLastModifiedTime(feed);
+        underTest.synchronize(feed.toString());
+        String content = new String(Files.readAllBytes(feed), StandardCharsets.UTF_8);
+        Files.write(feed, content.replace("Some Title", "Same Title").getBytes(StandardCharsets.UTF_8));
+        Files.setLastModifiedTime(feed, modifiedAt);
+
+        // WHEN
+        ReportDTO reportDto = underTest.synchronize(feed.toString());
+
+        //THEN
+        Assertions.assertEquals(1, reportDto.getUpdated());
+    }
+
+    @Test
+    void synchronizeRecordKeptWhenTablesAreSetUpAgain() throws IOException {
+        // GIVEN
+        Path feed = Paths.get("unit-test-1-valid.txt");
+        String source = feed.toAbsolutePath().normalize().toString();
+        underTest.synchronize(feed.toString());
+
+        // WHEN
+        // Like a restart with the schema kept
+        feedSyncRecordRepository.createTables();
+
+        //THEN
+        Assertions.assertTrue(feedSyncRecordRepository.isRecorded(source, Files.size(feed),
+                Files.getLastModifiedTime(feed).toMillis()));
+    }
+
+    @Test
+    void synchronizeReadsLastFeedAgainAfterAnotherFeed() {
+        // GIVEN
+        underTest.synchronize("unit-test-1-valid.txt");
+        underTest.synchronize("unit-test-2-valid.txt");
+
+        // WHEN
+        ReportDTO reportDto = underTest.synchronize("unit-test-1-valid.txt");
+
+        //THEN
+        Assertions.assertEquals(1, reportDto.getNotChanged());
+        Assertions.assertEquals(1, reportDto.getDeleted());
+    }
+
+}